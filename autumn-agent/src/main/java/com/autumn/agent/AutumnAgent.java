@@ -0,0 +1,110 @@
+package com.autumn.agent;
+
+import com.autumn.aop.ProxyClassGenerator;
+import com.autumn.aop.WeavingSupport;
+import com.autumn.aop.WovenInterceptors;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.modifier.FieldManifestation;
+import net.bytebuddy.description.modifier.Ownership;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.matcher.ElementMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.StringJoiner;
+
+import static net.bytebuddy.matcher.ElementMatchers.*;
+
+/**
+ * 加载时织入代理，以 -javaagent:autumn-agent.jar 启动，可以用逗号分隔的注解类名作为参数，默认为 @Aspect、@Around、@Timed、@Bulkhead、@RateLimited、@Transactional。
+ * 类或方法上有这些注解的类在加载时织入：类中声明的 public 方法都内联 WeavingAdvice，容器不再为这些 Bean 创建代理，
+ * Bean 内部的自调用同样会被拦截。织入的方法下标和签名写入 WeavingSupport.WOVEN_METHODS_FIELD
+ * <p>
+ * 运行时 classpath 中需要有 autumn-aop 和 byte-buddy
+ * @author huangcanjie
+ */
+public class AutumnAgent {
+
+    static final Logger logger = LoggerFactory.getLogger(AutumnAgent.class);
+
+    static final String[] DEFAULT_ANNOTATIONS = {
+            "com.autumn.annotation.Aspect",
+            "com.autumn.annotation.Around",
+            "com.autumn.annotation.Timed",
+            "com.autumn.annotation.Bulkhead",
+            "com.autumn.annotation.RateLimited",
+            "com.autumn.annotation.Transactional"
+    };
+
+    public static void premain(String args, Instrumentation instrumentation) {
+        String[] annotations = args == null || args.trim().isEmpty() ? DEFAULT_ANNOTATIONS : args.trim().split("\\s*,\\s*");
+        logger.info("weaving classes annotated with {}", Arrays.toString(annotations));
+        createAgentBuilder(annotations).installOn(instrumentation);
+    }
+
+    static AgentBuilder createAgentBuilder(String[] annotations) {
+        ElementMatcher.Junction<TypeDescription> annotation = namedOneOf(annotations);
+        return new AgentBuilder.Default()
+                .ignore(nameStartsWith("net.bytebuddy.")
+                        .or(nameStartsWith("com.autumn.aop."))
+                        .or(nameStartsWith("com.autumn.agent."))
+                        .or(nameContains(ProxyClassGenerator.PREGENERATED_SUFFIX))
+                        .or(isSynthetic()))
+                .with(new AgentBuilder.Listener.Adapter() {
+                    @Override
+                    public void onError(String typeName, ClassLoader classLoader, net.bytebuddy.utility.JavaModule module, boolean loaded, Throwable throwable) {
+                        logger.warn("cannot weave {}: {}", typeName, throwable.toString());
+                    }
+                })
+                .type(not(isInterface()).and(not(isAnnotation()))
+                        .and(isAnnotatedWith(annotation).or(declaresMethod(isAnnotatedWith(annotation)))))
+                .transform((builder, type, classLoader, module, protectionDomain) -> weave(builder, type));
+    }
+
+    static DynamicType.Builder<?> weave(DynamicType.Builder<?> builder, TypeDescription type) {
+        List<MethodDescription.InDefinedShape> methods = new ArrayList<>();
+        for (MethodDescription.InDefinedShape method : type.getDeclaredMethods()) {
+            if (method.isMethod() && method.isPublic() && !method.isStatic() && !method.isAbstract()
+                    && !method.isBridge() && !method.isSynthetic() && !method.isNative()) {
+                methods.add(method);
+            }
+        }
+        // 与 ProxyClassGenerator 相同的签名和顺序
+        methods.sort(Comparator.comparing(AutumnAgent::signature));
+        StringJoiner signatures = new StringJoiner(";");
+        methods.forEach(m -> signatures.add(signature(m)));
+
+        builder = builder
+                .defineField(WeavingSupport.WOVEN_FIELD, WovenInterceptors.class, Visibility.PRIVATE)
+                .defineField(WeavingSupport.WOVEN_METHODS_FIELD, String.class, Visibility.PUBLIC, Ownership.STATIC, FieldManifestation.FINAL)
+                .value(signatures.toString());
+        for (int i = 0; i < methods.size(); i++) {
+            MethodDescription.InDefinedShape method = methods.get(i);
+            Advice.WithCustomMapping mapping = Advice.withCustomMapping().bind(WovenIndex.class, i);
+            Advice advice = method.getReturnType().represents(void.class)
+                    ? mapping.to(WeavingAdvice.Enter.class)
+                    : mapping.to(WeavingAdvice.Enter.class, WeavingAdvice.Exit.class);
+            builder = builder.visit(advice.on(is(method)));
+        }
+        logger.debug("weave {} methods of {}", methods.size(), type.getName());
+        return builder;
+    }
+
+    static String signature(MethodDescription method) {
+        StringJoiner joiner = new StringJoiner(",", method.getName() + "(", ")");
+        for (TypeDefinition type : method.getParameters().asTypeList().asErasures()) {
+            joiner.add(type.asErasure().getTypeName());
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,42 @@
+package com.autumn.agent;
+
+import com.autumn.aop.WeavingSupport;
+import com.autumn.aop.WovenInterceptors;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+
+/**
+ * 内联到织入方法中的通知。方法开头执行拦截器链，链有返回值时跳过原方法体，在方法结束处作为返回值。
+ * 没有设置拦截器的实例只多一次字段读取
+ * @author huangcanjie
+ */
+class WeavingAdvice {
+
+    static class Enter {
+
+        @Advice.OnMethodEnter(skipOn = Advice.OnNonDefaultValue.class)
+        static Object enter(@Advice.FieldValue(WeavingSupport.WOVEN_FIELD) WovenInterceptors woven,
+                            @WovenIndex int index,
+                            @Advice.This Object self,
+                            @Advice.AllArguments Object[] args) throws Throwable {
+            if (woven == null) {
+                return null;
+            }
+            return WeavingSupport.enter(woven, index, self, args);
+        }
+    }
+
+    /**
+     * void 方法不需要设置返回值，只使用 Enter
+     */
+    static class Exit {
+
+        @Advice.OnMethodExit
+        static void exit(@Advice.Enter Object result,
+                         @Advice.Return(readOnly = false, typing = Assigner.Typing.DYNAMIC) Object returned) {
+            if (result != null) {
+                returned = WeavingSupport.exit(result);
+            }
+        }
+    }
+}
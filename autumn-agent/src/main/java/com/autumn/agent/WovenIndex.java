@@ -0,0 +1,15 @@
+package com.autumn.agent;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 绑定方法在织入类中的下标，织入时作为常量写入通知
+ * @author huangcanjie
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+@interface WovenIndex {
+}
@@ -7,7 +7,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
-@Target(ElementType.TYPE)
+@Target({ElementType.TYPE, ElementType.METHOD})
 @Retention(RetentionPolicy.RUNTIME)
 @Inherited // 如果A类标注了当前注解，则 B类（是A的子类）也会继承该注解
 @Documented
@@ -17,4 +17,10 @@ public @interface Around {
      * Invocation handler bean name.
      */
     String value();
+
+    /**
+     * Pointcut expression, only used on type. Empty means all public methods except those declared by Object.
+     * Methods annotated directly are always intercepted.
+     */
+    String pointcut() default "";
 }
@@ -10,7 +10,7 @@ import java.lang.annotation.Target;
 /**
  * @author huangcanjie
  */
-@Target(ElementType.TYPE)
+@Target({ElementType.TYPE, ElementType.METHOD})
 @Retention(RetentionPolicy.RUNTIME)
 @Inherited // 如果A类标注了当前注解，则 B类（是A的子类）也会继承该注解
 @Documented
@@ -20,4 +20,9 @@ public @interface Aspect {
      * Invocation handler bean name.
      */
     String value();
+
+    /**
+     * Pointcut expression selecting advised methods when annotated on type, see {@code com.autumn.aop.Pointcut}.
+     */
+    String pointcut() default "";
 }
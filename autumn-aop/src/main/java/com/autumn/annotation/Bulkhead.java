@@ -0,0 +1,40 @@
+package com.autumn.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 限制方法的并发调用数，超过时等待至多 maxWait 毫秒，仍然没有空位则抛出 InvocationRejectedException。
+ * 标注在类上时，匹配的方法共用一个并发限制；标注在方法上时，该方法单独限制
+ * @author huangcanjie
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface Bulkhead {
+
+    /**
+     * Interceptor bean name.
+     */
+    String value() default "bulkheadMethodInterceptor";
+
+    /**
+     * Maximum number of concurrent calls.
+     */
+    int maxConcurrent();
+
+    /**
+     * Maximum time in milliseconds to wait for a free slot, 0 means fail fast.
+     */
+    long maxWait() default 0;
+
+    /**
+     * Pointcut expression selecting the guarded methods when used on type. Empty means all public methods except those declared by Object.
+     */
+    String pointcut() default "";
+}
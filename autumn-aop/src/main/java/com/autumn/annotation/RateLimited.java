@@ -0,0 +1,45 @@
+package com.autumn.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 按令牌桶限制方法的调用速率，令牌不足时等待至多 maxWait 毫秒，否则抛出 InvocationRejectedException。
+ * 标注在类上时，匹配的方法共用一个令牌桶；标注在方法上时，该方法单独限制
+ * @author huangcanjie
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface RateLimited {
+
+    /**
+     * Interceptor bean name.
+     */
+    String value() default "rateLimitedMethodInterceptor";
+
+    /**
+     * Sustained rate of permits per second.
+     */
+    double permitsPerSecond();
+
+    /**
+     * Maximum number of permits that can be taken at once after an idle period.
+     */
+    int burst() default 1;
+
+    /**
+     * Maximum time in milliseconds to wait for a permit, 0 means fail fast.
+     */
+    long maxWait() default 0;
+
+    /**
+     * Pointcut expression selecting the limited methods when used on type. Empty means all public methods except those declared by Object.
+     */
+    String pointcut() default "";
+}
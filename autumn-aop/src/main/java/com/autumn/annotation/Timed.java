@@ -0,0 +1,30 @@
+package com.autumn.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 记录方法的耗时分布、吞吐量和异常次数，由 TimedProxyBeanPostProcessor 代理，
+ * 默认使用名为 timedMethodInterceptor 的 TimedMethodInterceptor
+ * @author huangcanjie
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface Timed {
+
+    /**
+     * Interceptor bean name.
+     */
+    String value() default "timedMethodInterceptor";
+
+    /**
+     * Pointcut expression selecting the timed methods when used on type. Empty means all public methods except those declared by Object.
+     */
+    String pointcut() default "";
+}
@@ -0,0 +1,18 @@
+package com.autumn.aop;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 切点和拦截器的组合。同一个 Bean 的所有 Advisor 合并到一个代理中，
+ * 每个方法的拦截器链按 order 从小到大排列，order 相同时先加入的在外层
+ * @author huangcanjie
+ */
+@Getter
+@AllArgsConstructor
+public class Advisor {
+
+    private final Pointcut pointcut;
+    private final MethodInterceptor interceptor;
+    private final int order;
+}
@@ -4,9 +4,10 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 
 /**
+ * 在调用线程中执行 after，可以替换返回值。只观察调用结果的通知（审计、日志、统计）可以改用 AsyncAfterMethodInterceptor，在后台线程执行
  * @author huangcanjie
  */
-public abstract class AfterInvocationHandlerAdapter implements InvocationHandler {
+public abstract class AfterInvocationHandlerAdapter implements InvocationHandler, MethodInterceptor {
 
     public abstract Object after(Object proxy, Object returnValue, Method method, Object[] args);
 
@@ -15,4 +16,10 @@ public abstract class AfterInvocationHandlerAdapter implements InvocationHandler
         Object result = method.invoke(proxy, args);
         return after(proxy, result, method, args);
     }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        return after(invocation.getThis(), result, invocation.getMethod(), invocation.getArguments());
+    }
 }
@@ -0,0 +1,21 @@
+package com.autumn.aop;
+
+import java.lang.reflect.Method;
+
+/**
+ * 无论目标方法正常返回还是抛出异常，都在之后执行的拦截器
+ * @author huangcanjie
+ */
+public abstract class AfterMethodInterceptor implements MethodInterceptor {
+
+    public abstract void after(Object target, Method method, Object[] args) throws Throwable;
+
+    @Override
+    public final Object invoke(MethodInvocation invocation) throws Throwable {
+        try {
+            return invocation.proceed();
+        } finally {
+            after(invocation.getThis(), invocation.getMethod(), invocation.getArguments());
+        }
+    }
+}
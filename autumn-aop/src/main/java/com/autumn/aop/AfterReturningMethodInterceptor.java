@@ -0,0 +1,18 @@
+package com.autumn.aop;
+
+import java.lang.reflect.Method;
+
+/**
+ * 在目标方法正常返回之后执行的拦截器，可以替换返回值
+ * @author huangcanjie
+ */
+public abstract class AfterReturningMethodInterceptor implements MethodInterceptor {
+
+    public abstract Object afterReturning(Object target, Object returnValue, Method method, Object[] args) throws Throwable;
+
+    @Override
+    public final Object invoke(MethodInvocation invocation) throws Throwable {
+        Object returnValue = invocation.proceed();
+        return afterReturning(invocation.getThis(), returnValue, invocation.getMethod(), invocation.getArguments());
+    }
+}
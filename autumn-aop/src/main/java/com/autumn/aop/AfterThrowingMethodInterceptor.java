@@ -0,0 +1,22 @@
+package com.autumn.aop;
+
+import java.lang.reflect.Method;
+
+/**
+ * 在目标方法抛出异常之后执行的拦截器，执行完成后异常继续向外抛出
+ * @author huangcanjie
+ */
+public abstract class AfterThrowingMethodInterceptor implements MethodInterceptor {
+
+    public abstract void afterThrowing(Object target, Method method, Object[] args, Throwable e) throws Throwable;
+
+    @Override
+    public final Object invoke(MethodInvocation invocation) throws Throwable {
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            afterThrowing(invocation.getThis(), invocation.getMethod(), invocation.getArguments(), e);
+            throw e;
+        }
+    }
+}
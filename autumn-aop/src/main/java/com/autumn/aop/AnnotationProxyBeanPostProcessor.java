@@ -9,11 +9,15 @@ import com.autumn.exception.AopConfigException;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * @author huangcanjie
@@ -28,25 +32,83 @@ public abstract class AnnotationProxyBeanPostProcessor<A extends Annotation> imp
 
     @Override
     public Object postProcessBeforeInitialization(Object bean, String beanName) {
-        Class<?> beanClass = bean.getClass();
-
-        A annotation = beanClass.getAnnotation(annotationClass);
-        if (annotation != null) {
-            String handlerName;
-            try {
-                handlerName = (String) annotation.annotationType().getMethod("value").invoke(annotation);
-            } catch (ReflectiveOperationException e) {
-                throw new AopConfigException(String.format("@%s must have value() returned String type.", this.annotationClass.getSimpleName()), e);
-            }
+        ProxyResolver proxyResolver = ProxyResolver.getInstance();
+        // bean 可能已经被其他处理器代理，按原始 Bean 的类匹配注解
+        Class<?> beanClass = proxyResolver.getTarget(bean).getClass();
 
-            Object proxy = createProxy(beanClass, bean, handlerName);
-            return proxy;
-        } else {
+        // 生成代理前匹配一次切点，按拦截器分组匹配的方法
+        Map<String, Set<Method>> methodsByHandler = matchMethods(beanClass, annotationClass);
+        if (methodsByHandler.isEmpty()) {
+            return bean;
+        }
+
+        // 每个拦截器作为一个 Advisor 加入代理，与其他处理器的 Advisor 合并成一层代理
+        List<Advisor> advisors = new ArrayList<>(methodsByHandler.size());
+        methodsByHandler.forEach((handlerName, methods) -> advisors.add(createAdvisor(handlerName, methods)));
+
+        // 类在加载时已被织入（autumn-agent），拦截器直接设置到原始 Bean 上，不再创建代理
+        if (proxyResolver.getTarget(bean) == bean && canAdvise(beanClass, methodsByHandler)) {
+            WeavingSupport.advise(bean, advisors);
             return bean;
         }
+        return proxyResolver.createProxy(bean, advisors);
+    }
+
+    /**
+     * 按注解匹配需要拦截的方法：类上的注解按切点表达式匹配方法，方法上的注解只作用于该方法。
+     * 构建时生成代理类的 Maven 插件使用同样的规则
+     * @return  拦截器 Bean 名称 -> 匹配的方法
+     */
+    public static <T extends Annotation> Map<String, Set<Method>> matchMethods(Class<?> beanClass, Class<T> annotationClass) {
+        T typeAnnotation = beanClass.getAnnotation(annotationClass);
+        Pointcut pointcut = typeAnnotation == null ? null : Pointcut.parse(getAttribute(typeAnnotation, "pointcut", ""));
+
+        Map<String, Set<Method>> methodsByHandler = new LinkedHashMap<>();
+        for (Method method : beanClass.getMethods()) {
+            T annotation = method.getAnnotation(annotationClass);
+            if (!Pointcut.isProxyable(method)) {
+                if (annotation != null) {
+                    throw new AopConfigException(String.format("@%s method %s must be public, non-static and non-final.", annotationClass.getSimpleName(), method));
+                }
+                continue;
+            }
+            if (annotation == null && pointcut != null && pointcut.matches(method)) {
+                annotation = typeAnnotation;
+            }
+            if (annotation != null) {
+                methodsByHandler.computeIfAbsent(getAttribute(annotation, "value", null), k -> new HashSet<>()).add(method);
+            }
+        }
+        return methodsByHandler;
+    }
+
+    private static boolean canAdvise(Class<?> beanClass, Map<String, Set<Method>> methodsByHandler) {
+        for (Set<Method> methods : methodsByHandler.values()) {
+            if (!WeavingSupport.canAdvise(beanClass, methods)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getAttribute(Annotation annotation, String name, String defaultValue) {
+        String annotationName = annotation.annotationType().getSimpleName();
+        try {
+            return (String) annotation.annotationType().getMethod(name).invoke(annotation);
+        } catch (NoSuchMethodException e) {
+            if (defaultValue != null) {
+                return defaultValue;
+            }
+            throw new AopConfigException(String.format("@%s must have %s() returned String type.", annotationName, name), e);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new AopConfigException(String.format("@%s must have %s() returned String type.", annotationName, name), e);
+        }
     }
 
-    private Object createProxy(Class<?> beanClass, Object bean, String handlerName) {
+    /**
+     * 拦截器 Bean 的 @Order 决定它在拦截器链中的位置，只实现 InvocationHandler 的拦截器总是在最后
+     */
+    private Advisor createAdvisor(String handlerName, Set<Method> methods) {
         ConfigurableApplicationContext context = (ConfigurableApplicationContext) ApplicationContextUtils.getRequiredApplicationContext();
 
         BeanDefinition beanDefinition = context.findBeanDefinition(handlerName);
@@ -57,12 +119,15 @@ public abstract class AnnotationProxyBeanPostProcessor<A extends Annotation> imp
         if (handlerBean == null) {
             handlerBean = context.createBeanAsEarlySingleton(beanDefinition);
         }
-        if (handlerBean instanceof InvocationHandler) {
-            InvocationHandler handler = (InvocationHandler) handlerBean;
-            return ProxyResolver.getInstance().createProxy(bean, handler);
+        // 优先使用 MethodInterceptor，代理直接调用原始 Bean，不经过反射
+        if (handlerBean instanceof MethodInterceptor) {
+            return new Advisor(Pointcut.of(methods), (MethodInterceptor) handlerBean, beanDefinition.getOrder());
+        } else if (handlerBean instanceof InvocationHandler) {
+            // InvocationHandler 自己调用原始 Bean，不会调用 proceed()，放在其他拦截器之后
+            return new Advisor(Pointcut.of(methods), new InvocationHandlerInterceptor(handlerName, (InvocationHandler) handlerBean), Integer.MAX_VALUE);
         } else {
-            throw new AopConfigException(String.format("@%s proxy handler '%s' is not type of %s.", this.annotationClass.getSimpleName(), handlerName,
-                    InvocationHandler.class.getName()));
+            throw new AopConfigException(String.format("@%s proxy handler '%s' is not type of %s or %s.", this.annotationClass.getSimpleName(), handlerName,
+                    MethodInterceptor.class.getName(), InvocationHandler.class.getName()));
         }
     }
 
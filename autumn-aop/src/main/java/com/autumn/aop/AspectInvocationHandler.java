@@ -7,9 +7,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 /**
+ * 每次调用都会创建 JoinPoint，并且目标方法抛出异常后以 null 作为返回值继续执行。
+ * 新的拦截器请实现 MethodInterceptor，或者继承 BeforeMethodInterceptor、AfterReturningMethodInterceptor、
+ * AfterThrowingMethodInterceptor、AfterMethodInterceptor
  * @author huangcanjie
  */
-public abstract class AspectInvocationHandler implements InvocationHandler {
+@Deprecated
+public abstract class AspectInvocationHandler implements InvocationHandler, MethodInterceptor {
 
     public void before(Object proxy, Method method, Object[] args) {
     }
@@ -36,27 +40,51 @@ public abstract class AspectInvocationHandler implements InvocationHandler {
         return result;
     }
 
+    @Override
+    public final Object invoke(MethodInvocation invocation) throws Throwable {
+        JoinPoint joinPoint = new JoinPoint(invocation);
+        Object result = this.around(joinPoint);
+        this.afterReturn(joinPoint.target, joinPoint.method, joinPoint.args);
+        return result;
+    }
 
     @Getter
     public class JoinPoint {
         Object target;
         Method method;
         Object[] args;
+        // 直接调用原始 Bean 时使用，为 null 时通过反射调用
+        final MethodInvocation invocation;
 
         public JoinPoint(Object proxy, Method method, Object[] args) {
             this.target = proxy;
             this.method = method;
             this.args = args;
+            this.invocation = null;
+        }
 
+        JoinPoint(MethodInvocation invocation) {
+            this.target = invocation.getThis();
+            this.method = invocation.getMethod();
+            this.args = invocation.getArguments();
+            this.invocation = invocation;
         }
 
         public Object process() {
             AspectInvocationHandler.this.before(target, method, args);
             Object returnValue = null;
-            try {
-                returnValue = this.method.invoke(target, args);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                AspectInvocationHandler.this.afterThrowing(target, method, args, e);
+            if (invocation != null) {
+                try {
+                    returnValue = invocation.proceed();
+                } catch (Throwable e) {
+                    AspectInvocationHandler.this.afterThrowing(target, method, args, e);
+                }
+            } else {
+                try {
+                    returnValue = this.method.invoke(target, args);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    AspectInvocationHandler.this.afterThrowing(target, method, args, e);
+                }
             }
             return AspectInvocationHandler.this.after(target, returnValue, method, args);
         }
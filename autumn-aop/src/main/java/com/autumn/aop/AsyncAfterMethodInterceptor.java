@@ -0,0 +1,73 @@
+package com.autumn.aop;
+
+import com.autumn.aop.async.HandOffQueue;
+import com.autumn.aop.async.OverflowPolicy;
+import com.autumn.aop.metrics.MBeans;
+
+import javax.annotation.PreDestroy;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * 在后台线程执行的 after 通知，适合审计、日志、统计等只观察调用结果的通知。
+ * 调用结束后（包括抛出异常）生成 InvocationRecord 放入有界队列，调用线程不等待通知执行，
+ * 队列满时按 OverflowPolicy 处理。通知不能修改返回值，执行的顺序与调用结束的顺序一致
+ * @author huangcanjie
+ */
+public abstract class AsyncAfterMethodInterceptor implements MethodInterceptor {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    final HandOffQueue<InvocationRecord> queue;
+    final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    final ObjectName objectName;
+
+    protected AsyncAfterMethodInterceptor() {
+        this(DEFAULT_CAPACITY, OverflowPolicy.DROP, 1);
+    }
+
+    /**
+     * @param capacity      队列容量
+     * @param sampleRate    OverflowPolicy.SAMPLE 时每多少个事件保留一个
+     */
+    protected AsyncAfterMethodInterceptor(int capacity, OverflowPolicy overflowPolicy, int sampleRate) {
+        String name = getClass().getName();
+        this.queue = new HandOffQueue<>(name, capacity, overflowPolicy, sampleRate, this::afterAsync);
+        this.objectName = MBeans.register(mBeanServer, "AsyncAdvice", name, queue);
+    }
+
+    /**
+     * 在后台线程中执行，抛出的异常只记录日志
+     */
+    public abstract void afterAsync(InvocationRecord record);
+
+    @Override
+    public final Object invoke(MethodInvocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        Object returnValue;
+        try {
+            returnValue = invocation.proceed();
+        } catch (Throwable e) {
+            queue.offer(new InvocationRecord(invocation, null, e, System.nanoTime() - start));
+            throw e;
+        }
+        queue.offer(new InvocationRecord(invocation, returnValue, null, System.nanoTime() - start));
+        return returnValue;
+    }
+
+    public HandOffQueue<InvocationRecord> getQueue() {
+        return queue;
+    }
+
+    /**
+     * 处理完队列中的事件后停止后台线程
+     */
+    @PreDestroy
+    public void close() {
+        queue.close();
+        if (objectName != null) {
+            MBeans.unregister(mBeanServer, objectName);
+        }
+    }
+}
@@ -6,7 +6,7 @@ import java.lang.reflect.Method;
 /**
  * @author huangcanjie
  */
-public abstract class BeforeInvocationHandlerAdapter implements InvocationHandler {
+public abstract class BeforeInvocationHandlerAdapter implements InvocationHandler, MethodInterceptor {
 
     public abstract void before (Object proxy, Method method, Object[] args);
 
@@ -15,4 +15,10 @@ public abstract class BeforeInvocationHandlerAdapter implements InvocationHandle
         before(proxy, method, args);
         return method.invoke(proxy, args);
     }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        before(invocation.getThis(), invocation.getMethod(), invocation.getArguments());
+        return invocation.proceed();
+    }
 }
@@ -0,0 +1,18 @@
+package com.autumn.aop;
+
+import java.lang.reflect.Method;
+
+/**
+ * 在目标方法之前执行的拦截器
+ * @author huangcanjie
+ */
+public abstract class BeforeMethodInterceptor implements MethodInterceptor {
+
+    public abstract void before(Object target, Method method, Object[] args) throws Throwable;
+
+    @Override
+    public final Object invoke(MethodInvocation invocation) throws Throwable {
+        before(invocation.getThis(), invocation.getMethod(), invocation.getArguments());
+        return invocation.proceed();
+    }
+}
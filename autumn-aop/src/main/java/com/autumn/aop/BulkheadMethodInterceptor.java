@@ -0,0 +1,35 @@
+package com.autumn.aop;
+
+import com.autumn.annotation.Bulkhead;
+import com.autumn.aop.limit.ConcurrencyLimiter;
+import com.autumn.exception.InvocationRejectedException;
+
+/**
+ * 限制 @Bulkhead 方法的并发调用数，超出时抛出 InvocationRejectedException。
+ * 与 @Transactional 一起使用时，应以 @Order 放在事务拦截器之前，被拒绝的调用不会占用数据库连接
+ * @author huangcanjie
+ */
+public class BulkheadMethodInterceptor extends LimitingMethodInterceptor<Bulkhead, ConcurrencyLimiter> {
+
+    public BulkheadMethodInterceptor() {
+        super(Bulkhead.class, "Bulkhead");
+    }
+
+    @Override
+    ConcurrencyLimiter createLimiter(String name, Bulkhead annotation) {
+        return new ConcurrencyLimiter(name, annotation.maxConcurrent(), annotation.maxWait());
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        ConcurrencyLimiter limiter = getLimiter(invocation);
+        if (!limiter.tryAcquire()) {
+            throw new InvocationRejectedException(String.format("Bulkhead %s is full (max %d concurrent calls).", limiter.getName(), limiter.getMaxConcurrent()));
+        }
+        try {
+            return invocation.proceed();
+        } finally {
+            limiter.release();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.autumn.aop;
+
+import com.autumn.annotation.Bulkhead;
+
+/**
+ * @author huangcanjie
+ */
+public class BulkheadProxyBeanPostProcessor extends AnnotationProxyBeanPostProcessor<Bulkhead> {
+}
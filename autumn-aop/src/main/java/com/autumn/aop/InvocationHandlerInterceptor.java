@@ -0,0 +1,55 @@
+package com.autumn.aop;
+
+import com.autumn.exception.AopConfigException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * 把只实现 InvocationHandler 的拦截器适配为 MethodInterceptor。
+ * InvocationHandler 自己通过反射调用原始 Bean，不会调用 proceed()，因此只能作为拦截器链的最后一个：
+ * Advisor 的 order 固定为 Integer.MAX_VALUE，同一个方法匹配多个 InvocationHandler 时报错
+ * @author huangcanjie
+ */
+final class InvocationHandlerInterceptor implements MethodInterceptor {
+
+    final String name;
+    final InvocationHandler handler;
+
+    InvocationHandlerInterceptor(String name, InvocationHandler handler) {
+        this.name = name;
+        this.handler = handler;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object target = invocation.getThis();
+        // 织入的类在 handler 反射调用同一方法时执行原方法体，不再进入拦截器链
+        WeavingSupport.bypass.set(target);
+        try {
+            return handler.invoke(target, invocation.getMethod(), invocation.getArguments());
+        } finally {
+            if (WeavingSupport.bypass.get() == target) {
+                WeavingSupport.bypass.remove();
+            }
+        }
+    }
+
+    /**
+     * 检查一个方法的拦截器链：InvocationHandler 之后的拦截器不会被执行
+     */
+    static void checkChain(Method method, List<MethodInterceptor> chain) {
+        for (int i = 0; i < chain.size() - 1; i++) {
+            if (chain.get(i) instanceof InvocationHandlerInterceptor) {
+                throw new AopConfigException(String.format("%s must be the last interceptor of %s, but %s follows it. Implement %s instead.",
+                        chain.get(i), method, chain.get(i + 1), MethodInterceptor.class.getName()));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "InvocationHandler '" + name + "'";
+    }
+}
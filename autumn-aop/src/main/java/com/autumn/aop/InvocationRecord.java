@@ -0,0 +1,47 @@
+package com.autumn.aop;
+
+import lombok.Getter;
+
+import java.lang.reflect.Method;
+
+/**
+ * 一次调用的不可变记录，交给后台线程执行的异步通知使用。参数数组是调用时的副本，参数对象本身没有复制
+ * @author huangcanjie
+ */
+@Getter
+public final class InvocationRecord {
+
+    static final Object[] NO_ARGS = new Object[0];
+
+    private final Object target;
+    private final Method method;
+    private final Object[] args;
+    private final Object returnValue;
+    // 目标方法正常返回时为 null
+    private final Throwable throwable;
+    private final long elapsedNanos;
+    // 调用结束时的 System.currentTimeMillis()
+    private final long timestamp;
+    private final String threadName;
+
+    InvocationRecord(MethodInvocation invocation, Object returnValue, Throwable throwable, long elapsedNanos) {
+        Object[] arguments = invocation.getArguments();
+        this.target = invocation.getThis();
+        this.method = invocation.getMethod();
+        // MethodInvocation 的参数数组会被复用，必须复制
+        this.args = arguments.length == 0 ? NO_ARGS : arguments.clone();
+        this.returnValue = returnValue;
+        this.throwable = throwable;
+        this.elapsedNanos = elapsedNanos;
+        this.timestamp = System.currentTimeMillis();
+        this.threadName = Thread.currentThread().getName();
+    }
+
+    public Object[] getArgs() {
+        return args.length == 0 ? args : args.clone();
+    }
+
+    public boolean isFailed() {
+        return throwable != null;
+    }
+}
@@ -0,0 +1,94 @@
+package com.autumn.aop;
+
+import com.autumn.aop.metrics.MBeans;
+import com.autumn.exception.AopConfigException;
+
+import javax.annotation.PreDestroy;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 限制调用的拦截器（@Bulkhead、@RateLimited）的基类：按注解的位置创建限制器，方法上的注解每个方法一个，
+ * 类上的注解整个类共用一个，并注册到 JMX
+ * @author huangcanjie
+ */
+abstract class LimitingMethodInterceptor<A extends Annotation, L> implements MethodInterceptor {
+
+    final Class<A> annotationClass;
+    final String jmxType;
+    final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    final List<ObjectName> registeredNames = new CopyOnWriteArrayList<>();
+
+    // 目标类 -> 代理类的方法 -> 限制器，同一个接口方法在不同的目标类上使用各自的限制器
+    final ClassValue<ConcurrentMap<Method, L>> limitersByMethod = new ClassValue<ConcurrentMap<Method, L>>() {
+        @Override
+        protected ConcurrentMap<Method, L> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    // 注解所在的方法或类 -> 限制器
+    final ConcurrentMap<AnnotatedElement, L> limiters = new ConcurrentHashMap<>();
+
+    LimitingMethodInterceptor(Class<A> annotationClass, String jmxType) {
+        this.annotationClass = annotationClass;
+        this.jmxType = jmxType;
+    }
+
+    /**
+     * 按注解创建限制器
+     */
+    abstract L createLimiter(String name, A annotation);
+
+    L getLimiter(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        Class<?> targetClass = invocation.getThis().getClass();
+        ConcurrentMap<Method, L> byMethod = limitersByMethod.get(targetClass);
+        L limiter = byMethod.get(method);
+        if (limiter == null) {
+            limiter = resolveLimiter(targetClass, method);
+            byMethod.putIfAbsent(method, limiter);
+        }
+        return limiter;
+    }
+
+    L resolveLimiter(Class<?> targetClass, Method method) {
+        Method targetMethod;
+        try {
+            targetMethod = targetClass.getMethod(method.getName(), method.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+            throw new AopConfigException(String.format("Method %s not found in %s.", method.getName(), targetClass.getName()), e);
+        }
+        A annotation = targetMethod.getAnnotation(annotationClass);
+        if (annotation != null) {
+            String name = targetClass.getName() + "." + ProxyClassGenerator.signature(targetMethod);
+            return limiters.computeIfAbsent(targetMethod, k -> register(name, createLimiter(name, annotation)));
+        }
+        A typeAnnotation = targetClass.getAnnotation(annotationClass);
+        if (typeAnnotation == null) {
+            throw new AopConfigException(String.format("@%s not found on %s or %s.", annotationClass.getSimpleName(), targetMethod, targetClass.getName()));
+        }
+        return limiters.computeIfAbsent(targetClass, k -> register(targetClass.getName(), createLimiter(targetClass.getName(), typeAnnotation)));
+    }
+
+    L register(String name, L limiter) {
+        ObjectName objectName = MBeans.register(mBeanServer, jmxType, name, limiter);
+        if (objectName != null) {
+            registeredNames.add(objectName);
+        }
+        return limiter;
+    }
+
+    @PreDestroy
+    public void close() {
+        registeredNames.forEach(name -> MBeans.unregister(mBeanServer, name));
+        registeredNames.clear();
+    }
+}
@@ -0,0 +1,11 @@
+package com.autumn.aop;
+
+/**
+ * 方法拦截器。与 InvocationHandler 相比，通过 MethodInvocation.proceed() 调用原始 Bean，不需要 Method.invoke
+ * @author huangcanjie
+ */
+@FunctionalInterface
+public interface MethodInterceptor {
+
+    Object invoke(MethodInvocation invocation) throws Throwable;
+}
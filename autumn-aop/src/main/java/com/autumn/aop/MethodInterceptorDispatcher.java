@@ -0,0 +1,249 @@
+package com.autumn.aop;
+
+import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.Argument;
+import net.bytebuddy.implementation.bind.annotation.FieldValue;
+import net.bytebuddy.implementation.bind.annotation.Origin;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * MethodInterceptor 代理的方法分派。代理类中被拦截的方法通过 MethodDelegation 调用 interceptN，
+ * 传入方法在代理类中的下标，取出生成代理时已经确定的拦截器链和调用原始 Bean 的 Invoker。
+ * <p>
+ * 调用过程不分配对象：MethodInvocation 由每个线程复用（按调用深度各一个，支持嵌套调用），
+ * 不超过 3 个参数的方法由 intercept0 ~ intercept3 逐个接收参数，写入 MethodInvocation 复用的参数数组。
+ * 只有基本类型参数、返回值的装箱，以及超过 3 个参数时的参数数组会分配对象
+ * @author huangcanjie
+ */
+public class MethodInterceptorDispatcher {
+
+    // 逐个接收参数的最大参数个数
+    static final int MAX_SPECIALIZED_ARITY = 3;
+
+    static final ThreadLocal<InvocationStack> invocationStack = ThreadLocal.withInitial(InvocationStack::new);
+
+    /**
+     * 以 invokevirtual 调用原始 Bean 的方法，代理类中每个被拦截的方法生成一个实现
+     */
+    public interface Invoker {
+        Object invoke(Object target, Object[] args) throws Throwable;
+    }
+
+    /**
+     * 绑定方法在代理类中的下标，生成代理类时作为常量写入
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    public @interface ChainIndex {
+    }
+
+    /**
+     * 参数个数对应的分派方法名
+     */
+    static String dispatchMethodName(int parameterCount) {
+        return parameterCount <= MAX_SPECIALIZED_ARITY ? "intercept" + parameterCount : "interceptN";
+    }
+
+    @RuntimeType
+    public static Object intercept0(@FieldValue(ProxyResolver.TARGET_FIELD) Object target,
+                                    @FieldValue(ProxyResolver.CHAINS_FIELD) MethodInterceptor[][] chains,
+                                    @FieldValue(ProxyResolver.INVOKERS_FIELD) Invoker[] invokers,
+                                    @ChainIndex int index,
+                                    @Origin Method method) throws Throwable {
+        InvocationStack stack = invocationStack.get();
+        ReusableMethodInvocation invocation = stack.push();
+        try {
+            invocation.args = ReusableMethodInvocation.NO_ARGS;
+            return invocation.start(target, method, chains[index], invokers[index]);
+        } finally {
+            stack.pop();
+        }
+    }
+
+    @RuntimeType
+    public static Object intercept1(@FieldValue(ProxyResolver.TARGET_FIELD) Object target,
+                                    @FieldValue(ProxyResolver.CHAINS_FIELD) MethodInterceptor[][] chains,
+                                    @FieldValue(ProxyResolver.INVOKERS_FIELD) Invoker[] invokers,
+                                    @ChainIndex int index,
+                                    @Origin Method method,
+                                    @Argument(0) Object a0) throws Throwable {
+        InvocationStack stack = invocationStack.get();
+        ReusableMethodInvocation invocation = stack.push();
+        try {
+            Object[] args = invocation.args1;
+            args[0] = a0;
+            invocation.args = args;
+            return invocation.start(target, method, chains[index], invokers[index]);
+        } finally {
+            stack.pop();
+        }
+    }
+
+    @RuntimeType
+    public static Object intercept2(@FieldValue(ProxyResolver.TARGET_FIELD) Object target,
+                                    @FieldValue(ProxyResolver.CHAINS_FIELD) MethodInterceptor[][] chains,
+                                    @FieldValue(ProxyResolver.INVOKERS_FIELD) Invoker[] invokers,
+                                    @ChainIndex int index,
+                                    @Origin Method method,
+                                    @Argument(0) Object a0,
+                                    @Argument(1) Object a1) throws Throwable {
+        InvocationStack stack = invocationStack.get();
+        ReusableMethodInvocation invocation = stack.push();
+        try {
+            Object[] args = invocation.args2;
+            args[0] = a0;
+            args[1] = a1;
+            invocation.args = args;
+            return invocation.start(target, method, chains[index], invokers[index]);
+        } finally {
+            stack.pop();
+        }
+    }
+
+    @RuntimeType
+    public static Object intercept3(@FieldValue(ProxyResolver.TARGET_FIELD) Object target,
+                                    @FieldValue(ProxyResolver.CHAINS_FIELD) MethodInterceptor[][] chains,
+                                    @FieldValue(ProxyResolver.INVOKERS_FIELD) Invoker[] invokers,
+                                    @ChainIndex int index,
+                                    @Origin Method method,
+                                    @Argument(0) Object a0,
+                                    @Argument(1) Object a1,
+                                    @Argument(2) Object a2) throws Throwable {
+        InvocationStack stack = invocationStack.get();
+        ReusableMethodInvocation invocation = stack.push();
+        try {
+            Object[] args = invocation.args3;
+            args[0] = a0;
+            args[1] = a1;
+            args[2] = a2;
+            invocation.args = args;
+            return invocation.start(target, method, chains[index], invokers[index]);
+        } finally {
+            stack.pop();
+        }
+    }
+
+    @RuntimeType
+    public static Object interceptN(@FieldValue(ProxyResolver.TARGET_FIELD) Object target,
+                                    @FieldValue(ProxyResolver.CHAINS_FIELD) MethodInterceptor[][] chains,
+                                    @FieldValue(ProxyResolver.INVOKERS_FIELD) Invoker[] invokers,
+                                    @ChainIndex int index,
+                                    @Origin Method method,
+                                    @AllArguments Object[] args) throws Throwable {
+        InvocationStack stack = invocationStack.get();
+        ReusableMethodInvocation invocation = stack.push();
+        try {
+            invocation.args = args;
+            return invocation.start(target, method, chains[index], invokers[index]);
+        } finally {
+            stack.pop();
+        }
+    }
+
+    /**
+     * 以复用的 MethodInvocation 执行拦截器链，供织入的方法使用
+     */
+    static Object dispatch(Object target, Method method, Object[] args, MethodInterceptor[] interceptors, Invoker invoker) throws Throwable {
+        InvocationStack stack = invocationStack.get();
+        ReusableMethodInvocation invocation = stack.push();
+        try {
+            invocation.args = args;
+            return invocation.start(target, method, interceptors, invoker);
+        } finally {
+            stack.pop();
+        }
+    }
+
+    /**
+     * 每个线程一组 MethodInvocation，按调用深度复用
+     */
+    static final class InvocationStack {
+
+        ReusableMethodInvocation[] invocations = new ReusableMethodInvocation[8];
+        int depth;
+
+        ReusableMethodInvocation push() {
+            if (depth == invocations.length) {
+                invocations = Arrays.copyOf(invocations, depth * 2);
+            }
+            ReusableMethodInvocation invocation = invocations[depth];
+            if (invocation == null) {
+                invocation = new ReusableMethodInvocation();
+                invocations[depth] = invocation;
+            }
+            depth++;
+            return invocation;
+        }
+
+        void pop() {
+            invocations[--depth].clear();
+        }
+    }
+
+    /**
+     * 可复用的 MethodInvocation，只在拦截器的 invoke 执行期间有效，不能保存或者交给其他线程使用
+     */
+    static final class ReusableMethodInvocation implements MethodInvocation {
+
+        static final Object[] NO_ARGS = new Object[0];
+
+        final Object[] args1 = new Object[1];
+        final Object[] args2 = new Object[2];
+        final Object[] args3 = new Object[3];
+
+        Object target;
+        Method method;
+        Object[] args;
+        MethodInterceptor[] interceptors;
+        Invoker invoker;
+        // 下一个要执行的拦截器
+        int position;
+
+        Object start(Object target, Method method, MethodInterceptor[] interceptors, Invoker invoker) throws Throwable {
+            this.target = target;
+            this.method = method;
+            this.interceptors = interceptors;
+            this.invoker = invoker;
+            this.position = 0;
+            return proceed();
+        }
+
+        void clear() {
+            // 释放引用，避免线程持有已经不用的对象
+            Arrays.fill(args, null);
+            this.target = null;
+            this.args = null;
+            this.interceptors = null;
+        }
+
+        @Override
+        public Object getThis() {
+            return target;
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Object[] getArguments() {
+            return args;
+        }
+
+        @Override
+        public Object proceed() throws Throwable {
+            if (position < interceptors.length) {
+                return interceptors[position++].invoke(this);
+            }
+            return invoker.invoke(target, args);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.autumn.aop;
+
+import java.lang.reflect.Method;
+
+/**
+ * 一次被拦截的方法调用。MethodInvocation 由代理在同一线程中复用，只在拦截器的 invoke 执行期间有效，
+ * 需要在调用结束后使用参数时应复制 getArguments()
+ * @author huangcanjie
+ */
+public interface MethodInvocation {
+
+    /**
+     * 原始 Bean
+     */
+    Object getThis();
+
+    Method getMethod();
+
+    /**
+     * 调用参数，在 proceed() 之前修改其中的元素会改变传给目标方法的参数
+     */
+    Object[] getArguments();
+
+    /**
+     * 调用拦截器链中的下一个拦截器，已经是最后一个时直接调用原始 Bean 的方法（不经过反射），
+     * 目标方法抛出的异常原样抛出
+     */
+    Object proceed() throws Throwable;
+}
@@ -0,0 +1,289 @@
+package com.autumn.aop;
+
+import com.autumn.exception.AopConfigException;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 切点，判断方法是否需要被拦截。只在生成代理时匹配一次，代理运行时不再判断。
+ * <p>
+ * 表达式语法：
+ * <pre>
+ * &#64;annotation(com.xxx.Log)                 方法标注了指定注解，可以只写简单类名
+ * execution(* get*(..))                      返回类型 方法名(参数类型)，* 匹配任意字符，.. 匹配任意个参数
+ * execution(void save(String, ..))           类型可以写简单类名或全限定名，如 java.lang.String、int、byte[]
+ * !、&amp;&amp;、||、()                                组合，优先级 ! &gt; &amp;&amp; &gt; ||
+ * </pre>
+ * @author huangcanjie
+ */
+public abstract class Pointcut {
+
+    /**
+     * 默认切点：除 Object 声明的方法以外的所有 public 方法
+     */
+    public static final Pointcut PUBLIC_METHODS = new Pointcut() {
+        @Override
+        public boolean matches(Method method) {
+            return method.getDeclaringClass() != Object.class;
+        }
+    };
+
+    /**
+     * 只匹配给定方法的切点
+     */
+    public static Pointcut of(Set<Method> methods) {
+        return new Pointcut() {
+            @Override
+            public boolean matches(Method method) {
+                return methods.contains(method);
+            }
+        };
+    }
+
+    static final Map<String, Pointcut> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 方法是否匹配切点，只会传入可以被代理的 public 方法
+     */
+    public abstract boolean matches(Method method);
+
+    /**
+     * 解析切点表达式，空表达式返回 PUBLIC_METHODS
+     */
+    public static Pointcut parse(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            return PUBLIC_METHODS;
+        }
+        return cache.computeIfAbsent(expression, e -> new Parser(e).parse());
+    }
+
+    /**
+     * 方法能否被代理类重写
+     */
+    static boolean isProxyable(Method method) {
+        int modifiers = method.getModifiers();
+        return Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers) && !method.isBridge();
+    }
+
+    static class Parser {
+
+        final String expression;
+        int pos;
+
+        Parser(String expression) {
+            this.expression = expression;
+        }
+
+        Pointcut parse() {
+            Pointcut pointcut = parseOr();
+            skipWhitespace();
+            if (pos < expression.length()) {
+                throw error("unexpected '" + expression.charAt(pos) + "'");
+            }
+            return pointcut;
+        }
+
+        Pointcut parseOr() {
+            Pointcut left = parseAnd();
+            while (consume("||")) {
+                Pointcut l = left, r = parseAnd();
+                left = new Pointcut() {
+                    @Override
+                    public boolean matches(Method method) {
+                        return l.matches(method) || r.matches(method);
+                    }
+                };
+            }
+            return left;
+        }
+
+        Pointcut parseAnd() {
+            Pointcut left = parseUnary();
+            while (consume("&&")) {
+                Pointcut l = left, r = parseUnary();
+                left = new Pointcut() {
+                    @Override
+                    public boolean matches(Method method) {
+                        return l.matches(method) && r.matches(method);
+                    }
+                };
+            }
+            return left;
+        }
+
+        Pointcut parseUnary() {
+            if (consume("!")) {
+                Pointcut p = parseUnary();
+                return new Pointcut() {
+                    @Override
+                    public boolean matches(Method method) {
+                        return !p.matches(method);
+                    }
+                };
+            }
+            if (consume("(")) {
+                Pointcut p = parseOr();
+                expect(")");
+                return p;
+            }
+            if (consume("@annotation")) {
+                return annotation(readArgument().trim());
+            }
+            if (consume("execution")) {
+                return execution(readArgument().trim());
+            }
+            throw error("expect @annotation(...) or execution(...)");
+        }
+
+        /**
+         * 读取括号中的内容，支持嵌套的括号
+         */
+        String readArgument() {
+            expect("(");
+            int start = pos, depth = 1;
+            while (pos < expression.length()) {
+                char c = expression.charAt(pos++);
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')' && --depth == 0) {
+                    return expression.substring(start, pos - 1);
+                }
+            }
+            throw error("missing ')'");
+        }
+
+        Pointcut annotation(String name) {
+            if (name.isEmpty()) {
+                throw error("missing annotation type");
+            }
+            return new Pointcut() {
+                @Override
+                public boolean matches(Method method) {
+                    // 按名称比较，不需要加载注解类
+                    for (Annotation annotation : method.getAnnotations()) {
+                        Class<?> type = annotation.annotationType();
+                        if (name.equals(type.getName()) || name.equals(type.getSimpleName())) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Pointcut execution(String signature) {
+            int open = signature.indexOf('(');
+            if (open < 0 || !signature.endsWith(")")) {
+                throw error("execution(...) requires 'returnType name(params)'");
+            }
+            String head = signature.substring(0, open).trim();
+            int space = head.lastIndexOf(' ');
+            if (space < 0) {
+                throw error("execution(...) requires return type and method name");
+            }
+            TypePattern returnType = new TypePattern(head.substring(0, space).trim());
+            Pattern name = Pattern.compile(globToRegex(head.substring(space + 1).trim()));
+
+            String params = signature.substring(open + 1, signature.length() - 1).trim();
+            List<TypePattern> paramTypes = new ArrayList<>();
+            boolean varargs = false;
+            if (!params.isEmpty()) {
+                String[] ss = params.split(",");
+                for (int i = 0; i < ss.length; i++) {
+                    String s = ss[i].trim();
+                    if ("..".equals(s)) {
+                        if (i != ss.length - 1) {
+                            throw error("'..' must be the last parameter");
+                        }
+                        varargs = true;
+                    } else {
+                        paramTypes.add(new TypePattern(s));
+                    }
+                }
+            }
+            boolean anyTrailing = varargs;
+            return new Pointcut() {
+                @Override
+                public boolean matches(Method method) {
+                    if (!name.matcher(method.getName()).matches() || !returnType.matches(method.getReturnType())) {
+                        return false;
+                    }
+                    Class<?>[] types = method.getParameterTypes();
+                    if (anyTrailing ? types.length < paramTypes.size() : types.length != paramTypes.size()) {
+                        return false;
+                    }
+                    for (int i = 0; i < paramTypes.size(); i++) {
+                        if (!paramTypes.get(i).matches(types[i])) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            };
+        }
+
+        boolean consume(String token) {
+            skipWhitespace();
+            if (expression.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        void expect(String token) {
+            if (!consume(token)) {
+                throw error("expect '" + token + "'");
+            }
+        }
+
+        void skipWhitespace() {
+            while (pos < expression.length() && Character.isWhitespace(expression.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        AopConfigException error(String message) {
+            return new AopConfigException(String.format("Invalid pointcut expression '%s' at %d: %s.", expression, pos, message));
+        }
+    }
+
+    /**
+     * 类型匹配：包含 . 时按全限定名匹配，否则按简单类名匹配
+     */
+    static class TypePattern {
+
+        final boolean qualified;
+        final Pattern pattern;
+
+        TypePattern(String pattern) {
+            this.qualified = pattern.indexOf('.') >= 0;
+            this.pattern = Pattern.compile(globToRegex(pattern));
+        }
+
+        boolean matches(Class<?> type) {
+            return pattern.matcher(qualified ? type.getTypeName() : type.getSimpleName()).matches();
+        }
+    }
+
+    static String globToRegex(String glob) {
+        StringBuilder sb = new StringBuilder(glob.length() + 16);
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                sb.append(".*");
+            } else {
+                sb.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.autumn.aop;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 构建时生成的代理类登记表，从类加载器中所有的 META-INF/autumn/proxies 读取。
+ * 每行格式为：目标类名 \t 代理类名 \t 被拦截的方法签名（以 ; 分隔，按代理类中的下标排列）
+ * @author huangcanjie
+ */
+class PregeneratedProxies {
+
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    // 类加载器（弱引用） -> 目标类名 -> 登记信息
+    final Map<ClassLoader, Map<String, Entry>> registries = new WeakHashMap<>();
+
+    /**
+     * 查找拦截了给定全部方法的预生成代理类，没有时返回 null
+     */
+    Entry find(Class<?> targetClass, List<String> signatures) {
+        ClassLoader classLoader = targetClass.getClassLoader();
+        if (classLoader == null) {
+            return null;
+        }
+        Entry entry = getRegistry(classLoader).get(targetClass.getName());
+        if (entry == null) {
+            return null;
+        }
+        // 预生成的代理类可以拦截更多的方法，多出的方法拦截器链为空
+        if (!entry.signatures.containsAll(signatures)) {
+            logger.debug("pregenerated proxy {} does not intercept all of {}, generate at runtime.", entry.proxyClassName, signatures);
+            return null;
+        }
+        return entry;
+    }
+
+    synchronized Map<String, Entry> getRegistry(ClassLoader classLoader) {
+        return registries.computeIfAbsent(classLoader, this::loadRegistry);
+    }
+
+    Map<String, Entry> loadRegistry(ClassLoader classLoader) {
+        Map<String, Entry> entries = new HashMap<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(ProxyClassGenerator.REGISTRY_LOCATION);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] parts = line.split("\t", -1);
+                        if (parts.length != 3) {
+                            continue;
+                        }
+                        List<String> signatures = parts[2].isEmpty() ? Collections.emptyList() : Arrays.asList(parts[2].split(";"));
+                        entries.putIfAbsent(parts[0], new Entry(parts[1], signatures));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("cannot read pregenerated proxy registry: {}", e.toString());
+        }
+        if (!entries.isEmpty()) {
+            logger.debug("found {} pregenerated proxies.", entries.size());
+        }
+        return entries;
+    }
+
+    static final class Entry {
+        final String proxyClassName;
+        final List<String> signatures;
+        // 加载后的代理类，加载失败后不再尝试
+        ProxyResolver.ProxyClass proxyClass;
+        boolean failed;
+
+        Entry(String proxyClassName, List<String> signatures) {
+            this.proxyClassName = proxyClassName;
+            this.signatures = signatures;
+        }
+    }
+}
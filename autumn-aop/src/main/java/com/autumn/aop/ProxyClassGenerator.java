@@ -0,0 +1,114 @@
+package com.autumn.aop;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.modifier.Ownership;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.implementation.bind.annotation.TargetMethodAnnotationDrivenBinder;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.matcher.ElementMatchers;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * 生成 MethodInterceptor 代理类和 Invoker 的字节码，运行时由 ProxyResolver 加载，构建时由 Maven 插件写入 target/classes
+ * @author huangcanjie
+ */
+public class ProxyClassGenerator {
+
+    // 构建时生成的代理类名后缀及登记文件
+    public static final String PREGENERATED_SUFFIX = "$$AutumnProxy";
+    public static final String REGISTRY_LOCATION = "META-INF/autumn/proxies";
+
+    final ByteBuddy byteBuddy = new ByteBuddy();
+
+    /**
+     * 生成代理类
+     * @param targetClass   原始Bean的类
+     * @param methods       被拦截的方法，下标即方法在代理类中的下标
+     * @param name          代理类名，为 null 时由 ByteBuddy 命名
+     */
+    public DynamicType.Unloaded<?> makeProxyClass(Class<?> targetClass, List<Method> methods, String name) {
+        DynamicType.Builder<?> builder = this.byteBuddy
+                .subclass(targetClass, ConstructorStrategy.Default.DEFAULT_CONSTRUCTOR);
+        if (name != null) {
+            builder = builder.name(name);
+        }
+        builder = builder
+                .defineField(ProxyResolver.TARGET_FIELD, targetClass, Visibility.PRIVATE)
+                .defineField(ProxyResolver.CHAINS_FIELD, MethodInterceptor[][].class, Visibility.PRIVATE)
+                .defineField(ProxyResolver.ADVISORS_FIELD, Advisor[].class, Visibility.PRIVATE)
+                .defineField(ProxyResolver.INVOKERS_FIELD, MethodInterceptorDispatcher.Invoker[].class, Visibility.PRIVATE, Ownership.STATIC)
+                // 没有被拦截的 public 方法直接调用原始 Bean 的同名方法
+                .method(ElementMatchers.isPublic())
+                .intercept(MethodCall.invokeSelf().onField(ProxyResolver.TARGET_FIELD).withAllArguments());
+        for (int i = 0; i < methods.size(); i++) {
+            // 被拦截的方法按参数个数委托给 MethodInterceptorDispatcher 的 interceptN，传入方法的下标用于取出拦截器链和 Invoker
+            Method method = methods.get(i);
+            builder = builder.method(ElementMatchers.definedMethod(ElementMatchers.is(method)))
+                    .intercept(MethodDelegation.withDefaultConfiguration()
+                            .withBinders(TargetMethodAnnotationDrivenBinder.ParameterBinder.ForFixedValue.OfConstant.of(MethodInterceptorDispatcher.ChainIndex.class, i))
+                            .filter(ElementMatchers.named(MethodInterceptorDispatcher.dispatchMethodName(method.getParameterCount())))
+                            .to(MethodInterceptorDispatcher.class));
+        }
+        return builder.make();
+    }
+
+    /**
+     * 生成以 invokevirtual 调用原始 Bean 方法的 Invoker，与目标类定义在同一个包中，参数从数组中取出并拆箱
+     */
+    public DynamicType.Unloaded<?> makeInvoker(Method method, String name) {
+        MethodCall call = MethodCall.invoke(method).onArgument(0);
+        if (method.getParameterCount() > 0) {
+            call = call.withArgumentArrayElements(1, method.getParameterCount());
+        }
+        return this.byteBuddy
+                .subclass(MethodInterceptorDispatcher.Invoker.class)
+                .name(name)
+                .method(ElementMatchers.named("invoke"))
+                .intercept(call.withAssigner(Assigner.DEFAULT, Assigner.Typing.DYNAMIC))
+                .make();
+    }
+
+    /**
+     * 构建时生成的代理类名
+     */
+    public static String pregeneratedProxyName(Class<?> targetClass) {
+        return targetClass.getName() + PREGENERATED_SUFFIX;
+    }
+
+    /**
+     * 构建时生成的代理类中第 index 个方法的 Invoker 类名
+     */
+    public static String pregeneratedInvokerName(String proxyClassName, int index) {
+        return proxyClassName + "$Invoker" + index;
+    }
+
+    /**
+     * 方法签名，如 save(java.lang.String,int)，用于比较构建时和运行时拦截的方法
+     */
+    public static String signature(Method method) {
+        StringJoiner joiner = new StringJoiner(",", method.getName() + "(", ")");
+        for (Class<?> type : method.getParameterTypes()) {
+            joiner.add(type.getTypeName());
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * 按签名排序，同一组方法在代理类中的下标固定
+     */
+    public static List<Method> sortMethods(Collection<Method> methods) {
+        List<Method> sorted = new ArrayList<>(methods);
+        sorted.sort(Comparator.comparing(ProxyClassGenerator::signature));
+        return sorted;
+    }
+}
@@ -1,25 +1,69 @@
 package com.autumn.aop;
 
+import com.autumn.exception.AopConfigException;
 import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.TypeCache;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassInjector;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
 import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
 import net.bytebuddy.implementation.InvocationHandlerAdapter;
 import net.bytebuddy.matcher.ElementMatchers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author huangcanjie
  */
 public class ProxyResolver {
 
+    // 代理类中保存拦截器的字段
+    static final String HANDLER_FIELD = "$autumn$handler";
+    // MethodInterceptor 代理类中保存原始 Bean 和各个方法拦截器链的字段
+    static final String TARGET_FIELD = "$autumn$target";
+    static final String CHAINS_FIELD = "$autumn$chains";
+    // 由 Advisor 创建的代理中保存全部 Advisor 的字段，用于再次增加 Advisor 时重新生成代理
+    static final String ADVISORS_FIELD = "$autumn$advisors";
+    // 代理类中保存各个方法 Invoker 的静态字段
+    static final String INVOKERS_FIELD = "$autumn$invokers";
+
+    static final MethodInterceptor[] NO_INTERCEPTORS = new MethodInterceptor[0];
+
     final Logger logger = LoggerFactory.getLogger(getClass());
 
     final ByteBuddy byteBuddy = new ByteBuddy();
 
+    final ProxyClassGenerator generator = new ProxyClassGenerator();
+
+    final PregeneratedProxies pregeneratedProxies = new PregeneratedProxies();
+
+    // 代理类缓存：按 类加载器（弱引用）-> (目标类, 代理形态) 缓存生成的代理类，同一个类的多个 Bean 共用一个代理类
+    final TypeCache<ProxyKey> proxyClassCache = new TypeCache.WithInlineExpunction<>(TypeCache.Sort.WEAK);
+
+    // 统计：生成的代理类数量、字节码大小、加载代理类前后 Metaspace 的增量（近似值）
+    final AtomicLong generatedClassCount = new AtomicLong();
+    final AtomicLong generatedBytecodeSize = new AtomicLong();
+    final AtomicLong metaspaceUsed = new AtomicLong();
+    // 使用的构建时生成的代理类数量
+    final AtomicLong pregeneratedClassCount = new AtomicLong();
+    // Invoker 类名的序号
+    final AtomicLong invokerCount = new AtomicLong();
+
     public static ProxyResolver getInstance() {
         return ProxyResolverHolder.INSTANCE;
     }
@@ -41,31 +85,370 @@ public class ProxyResolver {
     public <T> T createProxy(T bean, InvocationHandler handler) {
         Class<?> targetClass = bean.getClass();
         logger.debug("create proxy for bean {} @{}", targetClass.getName(), Integer.toHexString(bean.hashCode()));
-        // 创建代理类
-        Class<?> proxyClass = this.byteBuddy
+        // 获取或创建代理类
+        Class<?> proxyClass = getProxyClass(targetClass, ProxyShape.INVOCATION_HANDLER);
+
+        // 创建代理类实例，拦截器保存在实例字段中，调用传进来的拦截器的方法，代理原始 bean
+        Object proxy = newProxyInstance(proxyClass);
+        setField(proxyClass, proxy, HANDLER_FIELD, (InvocationHandler) (p, method, args) -> handler.invoke(bean, method, args));
+        return (T) proxy;
+    }
+
+    /**
+     * 创建直接调用原始 Bean 的代理实例：代理方法把调用交给拦截器，拦截器通过 MethodInvocation.proceed()
+     * 调用原始 Bean 的方法，整个调用链不经过 Method.invoke
+     * @param bean          原始Bean
+     * @param interceptor   拦截器，拦截所有可以重写的 public 方法
+     * @return              代理类实例
+     * @param <T>           原始Bean的类型
+     */
+    public <T> T createProxy(T bean, MethodInterceptor interceptor) {
+        Map<Method, MethodInterceptor[]> chains = new HashMap<>();
+        for (Method method : bean.getClass().getMethods()) {
+            if (Pointcut.isProxyable(method)) {
+                chains.put(method, new MethodInterceptor[] { interceptor });
+            }
+        }
+        return createProxy(bean, chains);
+    }
+
+    /**
+     * 按 Advisor 创建代理实例。如果 bean 已经是由 Advisor 创建的代理，则与已有的 Advisor 合并后从原始 Bean 重新创建，
+     * 多个 Advisor 只生成一层代理，每个方法一个按 order 排好序的拦截器链
+     * @param bean          原始Bean，或者由 Advisor 创建的代理
+     * @param advisors      新增的 Advisor
+     * @return              代理类实例，没有方法匹配任何 Advisor 时返回 bean 本身
+     * @param <T>           原始Bean的类型
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T createProxy(T bean, List<Advisor> advisors) {
+        Object target = bean;
+        List<Advisor> allAdvisors = new ArrayList<>();
+        Advisor[] existing = (Advisor[]) getProxyField(bean, ADVISORS_FIELD);
+        if (existing != null) {
+            target = getProxyField(bean, TARGET_FIELD);
+            allAdvisors.addAll(Arrays.asList(existing));
+        }
+        allAdvisors.addAll(advisors);
+        // 稳定排序，order 相同时保持加入的顺序
+        allAdvisors.sort(Comparator.comparingInt(Advisor::getOrder));
+
+        Map<Method, MethodInterceptor[]> chains = new HashMap<>();
+        List<MethodInterceptor> chain = new ArrayList<>();
+        for (Method method : target.getClass().getMethods()) {
+            if (!Pointcut.isProxyable(method)) {
+                continue;
+            }
+            chain.clear();
+            for (Advisor advisor : allAdvisors) {
+                if (advisor.getPointcut().matches(method)) {
+                    chain.add(advisor.getInterceptor());
+                }
+            }
+            if (!chain.isEmpty()) {
+                InvocationHandlerInterceptor.checkChain(method, chain);
+                chains.put(method, chain.toArray(new MethodInterceptor[0]));
+            }
+        }
+        if (chains.isEmpty()) {
+            return bean;
+        }
+        Object proxy = createProxy(target, chains);
+        setField(proxy.getClass(), proxy, ADVISORS_FIELD, allAdvisors.toArray(new Advisor[0]));
+        return (T) proxy;
+    }
+
+    /**
+     * 返回由 Advisor 创建的代理对应的原始 Bean，其他对象原样返回
+     */
+    public Object getTarget(Object bean) {
+        if (getProxyField(bean, ADVISORS_FIELD) == null) {
+            return bean;
+        }
+        return getProxyField(bean, TARGET_FIELD);
+    }
+
+    /**
+     * 按方法创建代理实例：chains 中的方法依次经过对应的拦截器链，其余 public 方法直接调用原始 Bean，不经过任何拦截器
+     * @param bean          原始Bean
+     * @param chains        被拦截的方法及其拦截器链，方法必须是 bean 的类可以重写的 public 方法
+     * @return              代理类实例
+     * @param <T>           原始Bean的类型
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T createProxy(T bean, Map<Method, MethodInterceptor[]> chains) {
+        Class<?> targetClass = bean.getClass();
+        logger.debug("create proxy for bean {} @{}, {} methods intercepted", targetClass.getName(), Integer.toHexString(bean.hashCode()), chains.size());
+        // 按方法签名排序，同一组方法对应同一个代理类，方法在代理类中的下标固定
+        List<Method> methods = ProxyClassGenerator.sortMethods(chains.keySet());
+        Map<String, MethodInterceptor[]> chainsBySignature = new HashMap<>();
+        for (Method method : methods) {
+            if (!Pointcut.isProxyable(method) || !method.getDeclaringClass().isAssignableFrom(targetClass)) {
+                throw new AopConfigException(String.format("Method %s cannot be intercepted in proxy of %s.", method, targetClass.getName()));
+            }
+            chainsBySignature.put(ProxyClassGenerator.signature(method), chains.get(method));
+        }
+        ProxyClass proxyClass = getProxyClass(targetClass, methods);
+
+        // 预生成的代理类可能拦截更多的方法，这些方法的拦截器链为空，直接调用原始 Bean
+        MethodInterceptor[][] interceptors = new MethodInterceptor[proxyClass.signatures.size()][];
+        for (int i = 0; i < interceptors.length; i++) {
+            MethodInterceptor[] chain = chainsBySignature.get(proxyClass.signatures.get(i));
+            interceptors[i] = chain == null ? NO_INTERCEPTORS : chain.clone();
+        }
+        Object proxy = newProxyInstance(proxyClass.type);
+        setField(proxyClass.type, proxy, TARGET_FIELD, bean);
+        setField(proxyClass.type, proxy, CHAINS_FIELD, interceptors);
+        return (T) proxy;
+    }
+
+    /**
+     * 获取代理类：优先使用构建时生成的代理类，没有时在运行时生成
+     */
+    ProxyClass getProxyClass(Class<?> targetClass, List<Method> methods) {
+        List<String> signatures = new ArrayList<>(methods.size());
+        for (Method method : methods) {
+            signatures.add(ProxyClassGenerator.signature(method));
+        }
+        PregeneratedProxies.Entry entry = pregeneratedProxies.find(targetClass, signatures);
+        if (entry != null) {
+            ProxyClass pregenerated = loadPregenerated(targetClass, entry);
+            if (pregenerated != null) {
+                return pregenerated;
+            }
+        }
+        ProxyKey key = new ProxyKey(targetClass.getName(), "METHOD_INTERCEPTOR:" + String.join(";", signatures));
+        Class<?> type = proxyClassCache.findOrInsert(targetClass.getClassLoader(), key, () -> generateProxyClass(targetClass, methods), proxyClassCache);
+        return new ProxyClass(type, signatures);
+    }
+
+    /**
+     * 加载构建时生成的代理类和 Invoker，加载失败时返回 null，改为运行时生成
+     */
+    ProxyClass loadPregenerated(Class<?> targetClass, PregeneratedProxies.Entry entry) {
+        synchronized (entry) {
+            if (entry.proxyClass == null && !entry.failed) {
+                ClassLoader classLoader = targetClass.getClassLoader();
+                try {
+                    Class<?> type = Class.forName(entry.proxyClassName, false, classLoader);
+                    if (type.getSuperclass() != targetClass) {
+                        throw new AopConfigException(String.format("Pregenerated proxy %s is not subclass of %s.", type.getName(), targetClass.getName()));
+                    }
+                    MethodInterceptorDispatcher.Invoker[] invokers = new MethodInterceptorDispatcher.Invoker[entry.signatures.size()];
+                    for (int i = 0; i < invokers.length; i++) {
+                        Class<?> invokerClass = Class.forName(ProxyClassGenerator.pregeneratedInvokerName(entry.proxyClassName, i), false, classLoader);
+                        invokers[i] = (MethodInterceptorDispatcher.Invoker) newProxyInstance(invokerClass);
+                    }
+                    setField(type, null, INVOKERS_FIELD, invokers);
+                    entry.proxyClass = new ProxyClass(type, entry.signatures);
+                    pregeneratedClassCount.incrementAndGet();
+                    logger.debug("use pregenerated proxy class {} for {}", type.getName(), targetClass.getName());
+                } catch (ClassNotFoundException | LinkageError | AopConfigException e) {
+                    logger.warn("cannot use pregenerated proxy {}, generate at runtime: {}", entry.proxyClassName, e.toString());
+                    entry.failed = true;
+                }
+            }
+            return entry.proxyClass;
+        }
+    }
+
+    Class<?> getProxyClass(Class<?> targetClass, ProxyShape shape) {
+        ProxyKey key = new ProxyKey(targetClass.getName(), shape.name());
+        return proxyClassCache.findOrInsert(targetClass.getClassLoader(), key, () -> generateProxyClass(targetClass, shape), proxyClassCache);
+    }
+
+    Class<?> generateProxyClass(Class<?> targetClass, ProxyShape shape) {
+        DynamicType.Unloaded<?> unloaded = this.byteBuddy
                 //  代理类是 targetClass 的子类，
                 .subclass(targetClass, ConstructorStrategy.Default.DEFAULT_CONSTRUCTOR)
-                // 拦截所有 public 方法
+                .defineField(HANDLER_FIELD, InvocationHandler.class, Visibility.PRIVATE)
+                // 拦截所有 public 方法，转发给实例字段中的拦截器。 由 ByteBuddy 负责方法、方法参数的传递
                 .method(ElementMatchers.isPublic())
-                .intercept(InvocationHandlerAdapter.of(
-                        // 调用传进来的拦截器的方法，代理原始 bean。 由 ByteBuddy 负责方法、方法参数的传递
-                        (proxy, method, args) -> handler.invoke(bean, method, args)
-                ))
+                .intercept(InvocationHandlerAdapter.toField(HANDLER_FIELD))
                 // 生成字节码
-                .make()
-                // 加载字节码
-                .load(targetClass.getClassLoader())
-                .getLoaded();
+                .make();
+        return load(targetClass, unloaded);
+    }
 
-        // 创建代理类实例
-        Object proxy;
+    Class<?> generateProxyClass(Class<?> targetClass, List<Method> methods) {
+        Class<?> proxyClass = load(targetClass, generator.makeProxyClass(targetClass, methods, null));
 
+        // 每个被拦截的方法生成一个 Invoker，由代理类的静态字段保存
+        setField(proxyClass, null, INVOKERS_FIELD, generateInvokers(targetClass, methods));
+        return proxyClass;
+    }
+
+    MethodInterceptorDispatcher.Invoker[] generateInvokers(Class<?> targetClass, List<Method> methods) {
+        MethodInterceptorDispatcher.Invoker[] invokers = new MethodInterceptorDispatcher.Invoker[methods.size()];
+        for (int i = 0; i < invokers.length; i++) {
+            String name = targetClass.getName() + "$AutumnInvoker$" + invokerCount.incrementAndGet();
+            invokers[i] = (MethodInterceptorDispatcher.Invoker) newProxyInstance(load(targetClass, generator.makeInvoker(methods.get(i), name)));
+        }
+        return invokers;
+    }
+
+    /**
+     * 加载代理类：优先通过 MethodHandles.Lookup 定义在目标类的类加载器和包中，
+     * 其次通过反射注入到目标类的类加载器，都不可用时才创建新的类加载器
+     */
+    Class<?> load(Class<?> targetClass, DynamicType.Unloaded<?> unloaded) {
+        long bytecodeSize = unloaded.getBytes().length;
+        for (byte[] auxiliary : unloaded.getAuxiliaryTypes().values()) {
+            bytecodeSize += auxiliary.length;
+        }
+        long metaspaceBefore = readMetaspaceUsage();
+        Class<?> proxyClass = unloaded.load(targetClass.getClassLoader(), getClassLoadingStrategy(targetClass)).getLoaded();
+        long metaspaceDelta = readMetaspaceUsage() - metaspaceBefore;
+
+        generatedClassCount.addAndGet(1 + unloaded.getAuxiliaryTypes().size());
+        generatedBytecodeSize.addAndGet(bytecodeSize);
+        if (metaspaceDelta > 0) {
+            metaspaceUsed.addAndGet(metaspaceDelta);
+        }
+        logger.debug("generate proxy class {} for {}: {} bytes", proxyClass.getName(), targetClass.getName(), bytecodeSize);
+        return proxyClass;
+    }
+
+    ClassLoadingStrategy<ClassLoader> getClassLoadingStrategy(Class<?> targetClass) {
+        if (targetClass.getClassLoader() != null) {
+            if (ClassInjector.UsingLookup.isAvailable()) {
+                try {
+                    Class<?> methodHandles = Class.forName("java.lang.invoke.MethodHandles");
+                    Object lookup = methodHandles.getMethod("lookup").invoke(null);
+                    Method privateLookupIn = methodHandles.getMethod("privateLookupIn", Class.class, Class.forName("java.lang.invoke.MethodHandles$Lookup"));
+                    return ClassLoadingStrategy.UsingLookup.of(privateLookupIn.invoke(null, targetClass, lookup));
+                } catch (ReflectiveOperationException e) {
+                    logger.debug("cannot define proxy of {} via lookup: {}", targetClass.getName(), e.toString());
+                }
+            }
+            if (ClassInjector.UsingReflection.isAvailable()) {
+                return ClassLoadingStrategy.Default.INJECTION;
+            }
+        }
+        return ClassLoadingStrategy.Default.WRAPPER;
+    }
+
+    Object newProxyInstance(Class<?> proxyClass) {
         try {
-            proxy = proxyClass.getConstructor().newInstance();
+            return proxyClass.getConstructor().newInstance();
         } catch (Exception e) {
-            throw new RuntimeException(e);
+            throw new AopConfigException(String.format("Cannot create proxy instance of %s.", proxyClass.getName()), e);
+        }
+    }
+
+    void setField(Class<?> proxyClass, Object proxy, String name, Object value) {
+        try {
+            Field field = proxyClass.getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(proxy, value);
+        } catch (ReflectiveOperationException e) {
+            throw new AopConfigException(String.format("Cannot set field %s of proxy %s.", name, proxyClass.getName()), e);
         }
-        return (T)proxy;
     }
 
+    /**
+     * 读取代理类中的字段，不是 MethodInterceptor 代理时返回 null
+     */
+    Object getProxyField(Object proxy, String name) {
+        Field field;
+        try {
+            field = proxy.getClass().getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+        try {
+            field.setAccessible(true);
+            return field.get(proxy);
+        } catch (ReflectiveOperationException e) {
+            throw new AopConfigException(String.format("Cannot get field %s of proxy %s.", name, proxy.getClass().getName()), e);
+        }
+    }
+
+    long readMetaspaceUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if ("Metaspace".equals(pool.getName())) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 生成的代理类数量（包括辅助类）
+     */
+    public long getGeneratedClassCount() {
+        return generatedClassCount.get();
+    }
+
+    /**
+     * 使用的构建时生成的代理类数量
+     */
+    public long getPregeneratedClassCount() {
+        return pregeneratedClassCount.get();
+    }
+
+    /**
+     * 生成的代理类字节码总大小
+     */
+    public long getGeneratedBytecodeSize() {
+        return generatedBytecodeSize.get();
+    }
+
+    /**
+     * 加载代理类时 Metaspace 的增量之和，并发加载其他类时会偏大，仅供参考
+     */
+    public long getMetaspaceUsed() {
+        return metaspaceUsed.get();
+    }
+
+    /**
+     * 代理类的形态，形态相同的代理类可以复用
+     */
+    enum ProxyShape {
+        // 所有 public 方法转发给 InvocationHandler
+        INVOCATION_HANDLER
+    }
+
+    /**
+     * 代理类及其拦截的方法签名，签名的下标即方法在代理类中的下标
+     */
+    static final class ProxyClass {
+        final Class<?> type;
+        final List<String> signatures;
+
+        ProxyClass(Class<?> type, List<String> signatures) {
+            this.type = type;
+            this.signatures = signatures;
+        }
+    }
+
+    /**
+     * 代理类缓存的 key，只保存类名，避免缓存强引用目标类导致类加载器无法回收
+     */
+    static final class ProxyKey {
+        final String targetClassName;
+        final String shape;
+
+        ProxyKey(String targetClassName, String shape) {
+            this.targetClassName = targetClassName;
+            this.shape = shape;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ProxyKey)) {
+                return false;
+            }
+            ProxyKey that = (ProxyKey) o;
+            return targetClassName.equals(that.targetClassName) && shape.equals(that.shape);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(targetClassName, shape);
+        }
+    }
 }
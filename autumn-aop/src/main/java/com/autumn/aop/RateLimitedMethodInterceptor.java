@@ -0,0 +1,30 @@
+package com.autumn.aop;
+
+import com.autumn.annotation.RateLimited;
+import com.autumn.aop.limit.RateLimiter;
+import com.autumn.exception.InvocationRejectedException;
+
+/**
+ * 限制 @RateLimited 方法的调用速率，超出时抛出 InvocationRejectedException
+ * @author huangcanjie
+ */
+public class RateLimitedMethodInterceptor extends LimitingMethodInterceptor<RateLimited, RateLimiter> {
+
+    public RateLimitedMethodInterceptor() {
+        super(RateLimited.class, "RateLimited");
+    }
+
+    @Override
+    RateLimiter createLimiter(String name, RateLimited annotation) {
+        return new RateLimiter(name, annotation.permitsPerSecond(), annotation.burst(), annotation.maxWait());
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        RateLimiter limiter = getLimiter(invocation);
+        if (!limiter.tryAcquire()) {
+            throw new InvocationRejectedException(String.format("Rate limit of %s exceeded (%s permits/s).", limiter.getName(), limiter.getPermitsPerSecond()));
+        }
+        return invocation.proceed();
+    }
+}
@@ -0,0 +1,9 @@
+package com.autumn.aop;
+
+import com.autumn.annotation.RateLimited;
+
+/**
+ * @author huangcanjie
+ */
+public class RateLimitedProxyBeanPostProcessor extends AnnotationProxyBeanPostProcessor<RateLimited> {
+}
@@ -0,0 +1,71 @@
+package com.autumn.aop;
+
+import com.autumn.aop.metrics.LatencyRecorder;
+import com.autumn.aop.metrics.TimerRegistry;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 记录方法耗时的拦截器，每个方法一个 LatencyRecorder，以 目标类名.方法签名 命名。
+ * 记录过程不加锁、不分配对象，统计结果通过 TimerRegistry 以 JMX 和文本格式导出
+ * @author huangcanjie
+ */
+public class TimedMethodInterceptor implements MethodInterceptor {
+
+    final TimerRegistry registry;
+
+    // 目标类 -> 代理类的方法 -> 记录器，同一个接口方法在不同的目标类上分别记录
+    final ClassValue<ConcurrentMap<Method, LatencyRecorder>> recorders = new ClassValue<ConcurrentMap<Method, LatencyRecorder>>() {
+        @Override
+        protected ConcurrentMap<Method, LatencyRecorder> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    public TimedMethodInterceptor() {
+        this(new TimerRegistry());
+    }
+
+    public TimedMethodInterceptor(TimerRegistry registry) {
+        this.registry = registry;
+    }
+
+    public TimerRegistry getRegistry() {
+        return registry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        LatencyRecorder recorder = getRecorder(invocation);
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            recorder.record(System.nanoTime() - start, false);
+            return result;
+        } catch (Throwable e) {
+            recorder.record(System.nanoTime() - start, true);
+            throw e;
+        }
+    }
+
+    LatencyRecorder getRecorder(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        Class<?> targetClass = invocation.getThis().getClass();
+        ConcurrentMap<Method, LatencyRecorder> byMethod = recorders.get(targetClass);
+        LatencyRecorder recorder = byMethod.get(method);
+        if (recorder == null) {
+            String name = targetClass.getName() + "." + ProxyClassGenerator.signature(method);
+            recorder = registry.getRecorder(name);
+            byMethod.putIfAbsent(method, recorder);
+        }
+        return recorder;
+    }
+
+    @PreDestroy
+    public void close() {
+        registry.close();
+    }
+}
@@ -0,0 +1,9 @@
+package com.autumn.aop;
+
+import com.autumn.annotation.Timed;
+
+/**
+ * @author huangcanjie
+ */
+public class TimedProxyBeanPostProcessor extends AnnotationProxyBeanPostProcessor<Timed> {
+}
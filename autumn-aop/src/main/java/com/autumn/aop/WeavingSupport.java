@@ -0,0 +1,213 @@
+package com.autumn.aop;
+
+import com.autumn.exception.AopConfigException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 加载时织入的运行时支持。织入代理（autumn-agent）在加载类时把通知内联到方法中，并为类增加两个字段：
+ * 实例字段 $autumn$woven 保存 WovenInterceptors，静态常量 $autumn$wovenMethods 保存织入的方法签名。
+ * 容器把 Advisor 直接设置到 Bean 实例上，不再创建代理；没有设置拦截器的实例直接执行原方法
+ * @author huangcanjie
+ */
+public class WeavingSupport {
+
+    public static final String WOVEN_FIELD = "$autumn$woven";
+    public static final String WOVEN_METHODS_FIELD = "$autumn$wovenMethods";
+
+    // 拦截器链返回 null 时 enter 的返回值，enter 返回 null 表示执行原方法
+    static final Object NULL_RESULT = new Object();
+
+    // 拦截器链执行到最后时，通过 Invoker 重新调用同一方法，此时跳过通知执行原方法体
+    static final ThreadLocal<Object> bypass = new ThreadLocal<>();
+
+    // 织入类 -> 织入的方法及 Invoker
+    static final Map<Class<?>, WovenMethods> wovenMethodsCache = new ConcurrentHashMap<>();
+
+    /**
+     * 由内联在方法开头的通知调用
+     * @return  null 表示执行原方法体，否则为拦截器链的返回值，由方法结束时的通知作为返回值
+     */
+    public static Object enter(WovenInterceptors woven, int index, Object self, Object[] args) throws Throwable {
+        MethodInterceptor[] chain = woven.chains[index];
+        if (chain.length == 0) {
+            return null;
+        }
+        if (bypass.get() == self) {
+            bypass.set(null);
+            return null;
+        }
+        Object result = MethodInterceptorDispatcher.dispatch(self, woven.methods[index], args, chain, woven.invokers[index]);
+        return result == null ? NULL_RESULT : result;
+    }
+
+    /**
+     * 由内联在方法结束处的通知调用，把 enter 的返回值还原为方法的返回值
+     */
+    public static Object exit(Object result) {
+        return result == NULL_RESULT ? null : result;
+    }
+
+    /**
+     * 类是否在加载时被织入
+     */
+    public static boolean isWoven(Class<?> clazz) {
+        return getWovenMethods(clazz) != null;
+    }
+
+    /**
+     * 织入类能否以织入的方式拦截给定的方法：方法必须都是类本身声明并被织入的
+     */
+    public static boolean canAdvise(Class<?> clazz, Collection<Method> methods) {
+        WovenMethods wovenMethods = getWovenMethods(clazz);
+        if (wovenMethods == null) {
+            return false;
+        }
+        for (Method method : methods) {
+            if (method.getDeclaringClass() != clazz || !wovenMethods.indexes.containsKey(ProxyClassGenerator.signature(method))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把 Advisor 设置到织入类的实例上，与实例上已有的 Advisor 合并，每个方法的拦截器链按 order 排序
+     */
+    public static void advise(Object bean, List<Advisor> advisors) {
+        Class<?> clazz = bean.getClass();
+        WovenMethods wovenMethods = getWovenMethods(clazz);
+        if (wovenMethods == null) {
+            throw new AopConfigException(String.format("Class %s is not woven.", clazz.getName()));
+        }
+        try {
+            WovenInterceptors current = (WovenInterceptors) wovenMethods.field.get(bean);
+            List<Advisor> allAdvisors = new ArrayList<>();
+            if (current != null) {
+                allAdvisors.addAll(Arrays.asList(current.advisors));
+            }
+            allAdvisors.addAll(advisors);
+            // 稳定排序，order 相同时保持加入的顺序
+            allAdvisors.sort(Comparator.comparingInt(Advisor::getOrder));
+
+            Method[] methods = wovenMethods.methods;
+            MethodInterceptor[][] chains = new MethodInterceptor[methods.length][];
+            List<MethodInterceptor> chain = new ArrayList<>();
+            for (int i = 0; i < methods.length; i++) {
+                chain.clear();
+                for (Advisor advisor : allAdvisors) {
+                    if (advisor.getPointcut().matches(methods[i])) {
+                        chain.add(advisor.getInterceptor());
+                    }
+                }
+                InvocationHandlerInterceptor.checkChain(methods[i], chain);
+                chains[i] = chain.toArray(ProxyResolver.NO_INTERCEPTORS);
+            }
+            wovenMethods.field.set(bean, new WovenInterceptors(methods, chains, wovenMethods.getInvokers(), allAdvisors.toArray(new Advisor[0])));
+        } catch (IllegalAccessException e) {
+            throw new AopConfigException(String.format("Cannot advise woven bean of %s.", clazz.getName()), e);
+        }
+    }
+
+    static WovenMethods getWovenMethods(Class<?> clazz) {
+        WovenMethods wovenMethods = wovenMethodsCache.get(clazz);
+        if (wovenMethods == null) {
+            wovenMethods = loadWovenMethods(clazz);
+            if (wovenMethods == null) {
+                return null;
+            }
+            WovenMethods existing = wovenMethodsCache.putIfAbsent(clazz, wovenMethods);
+            if (existing != null) {
+                wovenMethods = existing;
+            }
+        }
+        return wovenMethods;
+    }
+
+    static WovenMethods loadWovenMethods(Class<?> clazz) {
+        Field field;
+        String[] signatures;
+        try {
+            field = clazz.getDeclaredField(WOVEN_FIELD);
+            Field signaturesField = clazz.getDeclaredField(WOVEN_METHODS_FIELD);
+            if (!Modifier.isStatic(signaturesField.getModifiers()) || field.getType() != WovenInterceptors.class) {
+                return null;
+            }
+            field.setAccessible(true);
+            signaturesField.setAccessible(true);
+            String value = (String) signaturesField.get(null);
+            signatures = value.isEmpty() ? new String[0] : value.split(";");
+        } catch (NoSuchFieldException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            throw new AopConfigException(String.format("Cannot read woven methods of %s.", clazz.getName()), e);
+        }
+        Map<String, Method> declared = new HashMap<>();
+        for (Method method : clazz.getDeclaredMethods()) {
+            declared.put(ProxyClassGenerator.signature(method), method);
+        }
+        Method[] methods = new Method[signatures.length];
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < signatures.length; i++) {
+            methods[i] = declared.get(signatures[i]);
+            if (methods[i] == null) {
+                throw new AopConfigException(String.format("Woven method %s not found in %s.", signatures[i], clazz.getName()));
+            }
+            indexes.put(signatures[i], i);
+        }
+        return new WovenMethods(clazz, field, methods, indexes);
+    }
+
+    static final class WovenMethods {
+        final Class<?> clazz;
+        final Field field;
+        final Method[] methods;
+        final Map<String, Integer> indexes;
+        // 第一次设置拦截器时生成
+        volatile MethodInterceptorDispatcher.Invoker[] invokers;
+
+        WovenMethods(Class<?> clazz, Field field, Method[] methods, Map<String, Integer> indexes) {
+            this.clazz = clazz;
+            this.field = field;
+            this.methods = methods;
+            this.indexes = indexes;
+        }
+
+        MethodInterceptorDispatcher.Invoker[] getInvokers() {
+            if (invokers == null) {
+                synchronized (this) {
+                    if (invokers == null) {
+                        MethodInterceptorDispatcher.Invoker[] generated = ProxyResolver.getInstance().generateInvokers(clazz, Arrays.asList(methods));
+                        for (int i = 0; i < generated.length; i++) {
+                            // 调用前设置标记，重新进入方法时执行原方法体
+                            MethodInterceptorDispatcher.Invoker invoker = generated[i];
+                            generated[i] = (target, args) -> {
+                                bypass.set(target);
+                                try {
+                                    return invoker.invoke(target, args);
+                                } finally {
+                                    // 未重新进入方法就抛出异常时清除标记，避免下一次调用跳过通知
+                                    if (bypass.get() == target) {
+                                        bypass.remove();
+                                    }
+                                }
+                            };
+                        }
+                        invokers = generated;
+                    }
+                }
+            }
+            return invokers;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.autumn.aop;
+
+import java.lang.reflect.Method;
+
+/**
+ * 织入类的实例中保存的拦截器链，下标为方法在织入类中的下标
+ * @author huangcanjie
+ */
+public final class WovenInterceptors {
+
+    final Method[] methods;
+    final MethodInterceptor[][] chains;
+    final MethodInterceptorDispatcher.Invoker[] invokers;
+    final Advisor[] advisors;
+
+    WovenInterceptors(Method[] methods, MethodInterceptor[][] chains, MethodInterceptorDispatcher.Invoker[] invokers, Advisor[] advisors) {
+        this.methods = methods;
+        this.chains = chains;
+        this.invokers = invokers;
+        this.advisors = advisors;
+    }
+}
@@ -0,0 +1,227 @@
+package com.autumn.aop.async;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 有界的多生产者、单消费者环形队列，由一个后台线程取出事件交给 consumer。
+ * 生产者以 CAS 占用槽位，不加锁；后台线程空闲时挂起，生产者只在它挂起时唤醒
+ * @author huangcanjie
+ */
+public class HandOffQueue<E> implements HandOffQueueMXBean {
+
+    static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    static final long CLOSE_TIMEOUT_MILLIS = 5000;
+    // close 时在 producerIndex 上设置的标记，之后生产者不能再占用槽位
+    static final long CLOSED = 1L << 62;
+
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    final String name;
+    final OverflowPolicy overflowPolicy;
+    final int sampleRate;
+    final Consumer<? super E> consumer;
+
+    final AtomicReferenceArray<E> slots;
+    final int mask;
+    // SAMPLE 策略开始采样的队列长度
+    final int highWaterMark;
+
+    final AtomicLong producerIndex = new AtomicLong();
+    // 只由后台线程写入
+    volatile long consumerIndex;
+
+    final LongAdder queued = new LongAdder();
+    final LongAdder dropped = new LongAdder();
+    final AtomicLong sampleCounter = new AtomicLong();
+    volatile long processed;
+    volatile long failed;
+
+    final Thread worker;
+    volatile boolean waiting;
+    volatile boolean running = true;
+
+    /**
+     * @param capacity      队列容量，向上取整为 2 的幂
+     * @param sampleRate    SAMPLE 策略下每多少个事件保留一个
+     */
+    public HandOffQueue(String name, int capacity, OverflowPolicy overflowPolicy, int sampleRate, Consumer<? super E> consumer) {
+        if (capacity <= 0 || capacity > (1 << 30) || sampleRate <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid queue %s: capacity=%d, sampleRate=%d.", name, capacity, sampleRate));
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        if (capacity == 1) {
+            size = 1;
+        }
+        this.name = name;
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = sampleRate;
+        this.consumer = consumer;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.highWaterMark = Math.max(1, size / 2);
+        this.worker = new Thread(this::drain, "autumn-async-advice-" + name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 按溢出策略加入事件
+     * @return  事件被丢弃时返回 false
+     */
+    public boolean offer(E event) {
+        if (running) {
+            switch (overflowPolicy) {
+                case BLOCK:
+                    do {
+                        if (tryOffer(event)) {
+                            return true;
+                        }
+                        wakeUpWorker();
+                        LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                    } while (running);
+                    break;
+                case SAMPLE:
+                    if (getSize() >= highWaterMark && sampleCounter.getAndIncrement() % sampleRate != 0) {
+                        break;
+                    }
+                    if (tryOffer(event)) {
+                        return true;
+                    }
+                    break;
+                default:
+                    if (tryOffer(event)) {
+                        return true;
+                    }
+            }
+        }
+        dropped.increment();
+        return false;
+    }
+
+    boolean tryOffer(E event) {
+        long index;
+        do {
+            index = producerIndex.get();
+            if ((index & CLOSED) != 0 || index - consumerIndex >= slots.length()) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+        slots.lazySet((int) index & mask, event);
+        queued.increment();
+        if (waiting) {
+            wakeUpWorker();
+        }
+        return true;
+    }
+
+    void wakeUpWorker() {
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * 后台线程：取出事件交给 consumer，关闭后处理完剩余的事件再退出。
+     * 关闭标记和槽位的占用由同一个 CAS 决定，看到标记时所有已占用的槽位都已处理，不会遗漏关闭前加入的事件
+     */
+    void drain() {
+        long index = consumerIndex;
+        for (;;) {
+            int offset = (int) index & mask;
+            E event = slots.get(offset);
+            if (event != null) {
+                slots.lazySet(offset, null);
+                consumerIndex = ++index;
+                consume(event);
+                continue;
+            }
+            long published = producerIndex.get();
+            if ((published & ~CLOSED) != index) {
+                // 生产者已经占用槽位，还没有写入
+                Thread.yield();
+                continue;
+            }
+            if ((published & CLOSED) != 0) {
+                return;
+            }
+            waiting = true;
+            if (producerIndex.get() == index && running) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            waiting = false;
+        }
+    }
+
+    void consume(E event) {
+        try {
+            consumer.accept(event);
+            processed++;
+        } catch (Throwable e) {
+            failed++;
+            logger.warn("async advice {} failed: {}", name, e.toString(), e);
+        }
+    }
+
+    /**
+     * 停止接收事件，等待后台线程处理完已经加入的事件
+     */
+    public void close() {
+        running = false;
+        producerIndex.getAndUpdate(index -> index | CLOSED);
+        wakeUpWorker();
+        try {
+            worker.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            logger.warn("async advice {} did not finish in {} ms, {} events left.", name, CLOSE_TIMEOUT_MILLIS, getSize());
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    @Override
+    public String getOverflowPolicy() {
+        return overflowPolicy.name();
+    }
+
+    @Override
+    public int getSize() {
+        return (int) Math.max(0, (producerIndex.get() & ~CLOSED) - consumerIndex);
+    }
+
+    @Override
+    public long getQueuedCount() {
+        return queued.sum();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public long getProcessedCount() {
+        return processed;
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed;
+    }
+}
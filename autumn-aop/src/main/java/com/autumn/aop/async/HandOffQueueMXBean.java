@@ -0,0 +1,22 @@
+package com.autumn.aop.async;
+
+/**
+ * 以 JMX 导出的异步通知队列状态，ObjectName 为 com.autumn:type=AsyncAdvice,name="名称"
+ * @author huangcanjie
+ */
+public interface HandOffQueueMXBean {
+
+    int getCapacity();
+
+    String getOverflowPolicy();
+
+    int getSize();
+
+    long getQueuedCount();
+
+    long getDroppedCount();
+
+    long getProcessedCount();
+
+    long getFailedCount();
+}
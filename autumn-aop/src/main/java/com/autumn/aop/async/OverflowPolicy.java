@@ -0,0 +1,23 @@
+package com.autumn.aop.async;
+
+/**
+ * 队列满时的处理方式
+ * @author huangcanjie
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 丢弃新的事件，调用线程不等待
+     */
+    DROP,
+
+    /**
+     * 调用线程等待队列有空位，后台线程处理变慢时会拖慢调用
+     */
+    BLOCK,
+
+    /**
+     * 队列超过一半时只保留每 sampleRate 个事件中的一个，队列满时丢弃
+     */
+    SAMPLE
+}
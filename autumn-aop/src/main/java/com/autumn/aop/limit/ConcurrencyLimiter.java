@@ -0,0 +1,89 @@
+package com.autumn.aop.limit;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 限制并发调用数。先以非阻塞的 tryAcquire 获取空位（CAS，不排队），
+ * 没有空位且允许等待时才在 maxWait 内排队等待
+ * @author huangcanjie
+ */
+public class ConcurrencyLimiter implements ConcurrencyLimiterMXBean {
+
+    final String name;
+    final int maxConcurrent;
+    final long maxWaitNanos;
+    final Semaphore semaphore;
+    final LongAdder accepted = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param maxWait   等待空位的最长时间（毫秒），0 表示没有空位时立即失败
+     */
+    public ConcurrencyLimiter(String name, int maxConcurrent, long maxWait) {
+        if (maxConcurrent <= 0 || maxWait < 0) {
+            throw new IllegalArgumentException(String.format("Invalid bulkhead %s: maxConcurrent=%d, maxWait=%d.", name, maxConcurrent, maxWait));
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWait);
+        this.semaphore = new Semaphore(maxConcurrent);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取一个空位，成功后必须调用 release
+     * @return  没有空位（或等待被中断）时返回 false
+     */
+    public boolean tryAcquire() {
+        if (semaphore.tryAcquire()) {
+            accepted.increment();
+            return true;
+        }
+        if (maxWaitNanos > 0) {
+            try {
+                if (semaphore.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                    accepted.increment();
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+
+    @Override
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    @Override
+    public long getMaxWait() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+    }
+
+    @Override
+    public int getActiveCount() {
+        return maxConcurrent - semaphore.availablePermits();
+    }
+
+    @Override
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
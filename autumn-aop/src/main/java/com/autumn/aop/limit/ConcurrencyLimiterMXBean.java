@@ -0,0 +1,18 @@
+package com.autumn.aop.limit;
+
+/**
+ * 以 JMX 导出的 @Bulkhead 状态，ObjectName 为 com.autumn:type=Bulkhead,name="名称"
+ * @author huangcanjie
+ */
+public interface ConcurrencyLimiterMXBean {
+
+    int getMaxConcurrent();
+
+    long getMaxWait();
+
+    int getActiveCount();
+
+    long getAcceptedCount();
+
+    long getRejectedCount();
+}
@@ -0,0 +1,107 @@
+package com.autumn.aop.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 无锁的令牌桶，容量为 burst，每 1/permitsPerSecond 秒补充一个令牌。
+ * 以 GCRA 的方式实现：只保存下一个令牌的理论发放时间，一次 CAS 完成获取，不需要定时补充令牌
+ * @author huangcanjie
+ */
+public class RateLimiter implements RateLimiterMXBean {
+
+    final String name;
+    final double permitsPerSecond;
+    final int burst;
+    // 发放一个令牌的间隔
+    final long intervalNanos;
+    // 桶满时可以提前发放的时间
+    final long toleranceNanos;
+    final long maxWaitNanos;
+    // 下一个令牌的理论发放时间，初始时桶是满的
+    final AtomicLong nextPermitTime = new AtomicLong(System.nanoTime());
+    final LongAdder accepted = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param maxWait   等待令牌的最长时间（毫秒），0 表示没有令牌时立即失败
+     */
+    public RateLimiter(String name, double permitsPerSecond, int burst, long maxWait) {
+        if (!(permitsPerSecond > 0) || burst <= 0 || maxWait < 0) {
+            throw new IllegalArgumentException(String.format("Invalid rate limiter %s: permitsPerSecond=%s, burst=%d, maxWait=%d.", name, permitsPerSecond, burst, maxWait));
+        }
+        this.name = name;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWait);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取一个令牌，需要等待时在 maxWait 内预留令牌并等待到发放时间
+     * @return  maxWait 内没有令牌时返回 false
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        long wait;
+        for (;;) {
+            long next = nextPermitTime.get();
+            // 以差值比较，nanoTime 溢出时仍然正确
+            long start = next - now > 0 ? next : now;
+            wait = next - now - toleranceNanos;
+            if (wait > maxWaitNanos) {
+                rejected.increment();
+                return false;
+            }
+            if (nextPermitTime.compareAndSet(next, start + intervalNanos)) {
+                break;
+            }
+        }
+        accepted.increment();
+        if (wait > 0) {
+            long deadline = now + wait;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    // 令牌已经预留，恢复中断状态后直接执行
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    @Override
+    public int getBurst() {
+        return burst;
+    }
+
+    @Override
+    public long getMaxWait() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+    }
+
+    @Override
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
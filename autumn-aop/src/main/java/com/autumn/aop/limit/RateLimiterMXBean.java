@@ -0,0 +1,18 @@
+package com.autumn.aop.limit;
+
+/**
+ * 以 JMX 导出的 @RateLimited 状态，ObjectName 为 com.autumn:type=RateLimited,name="名称"
+ * @author huangcanjie
+ */
+public interface RateLimiterMXBean {
+
+    double getPermitsPerSecond();
+
+    int getBurst();
+
+    long getMaxWait();
+
+    long getAcceptedCount();
+
+    long getRejectedCount();
+}
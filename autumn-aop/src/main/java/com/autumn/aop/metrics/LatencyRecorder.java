@@ -0,0 +1,251 @@
+package com.autumn.aop.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的耗时记录器，按 HdrHistogram 的方式分桶：每个 2 的幂区间分为 64 个子桶，相对误差小于 1/64，
+ * 最大记录 2^36 纳秒（约 68 秒），超出的按最大值记录。
+ * <p>
+ * 写入和读取使用两个交替的区间（double buffer）：写线程只对当前区间做原子自增，不加锁、不分配对象；
+ * snapshot 交换区间，等待仍在写旧区间的线程退出后，把旧区间累加到总计中。读取之间互斥，不影响写线程。
+ * <p>
+ * 读取不改变统计结果：次数、耗时总和、异常次数只增不减，由使用方计算速率；
+ * 吞吐量按读取方（Reader）各自上次读取之后的调用次数计算，多个读取方（JMX、/metrics）互不影响
+ * @author huangcanjie
+ */
+public class LatencyRecorder implements TimerMXBean {
+
+    static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 6;
+    static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    static final long SUB_BUCKET_MASK = (SUB_BUCKET_HALF_COUNT << 1) - 1;
+    static final int LEADING_ZERO_COUNT_BASE = 64 - SUB_BUCKET_HALF_COUNT_MAGNITUDE - 1;
+    static final long HIGHEST_TRACKABLE_VALUE = (1L << 36) - 1;
+    static final int LENGTH = countsIndex(HIGHEST_TRACKABLE_VALUE) + 1;
+
+    final String name;
+
+    volatile Interval active = new Interval();
+    Interval inactive = new Interval();
+
+    // 写线程进入区间时自增 startEpoch，退出时自增当前阶段的 endEpoch，startEpoch 的符号位表示阶段
+    final AtomicLong startEpoch = new AtomicLong();
+    final AtomicLong evenEndEpoch = new AtomicLong();
+    final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+
+    // 以下由 snapshot 在锁内读写
+    final long[] totalCounts = new long[LENGTH];
+    long totalCount;
+    long totalNanos;
+    long totalErrors;
+    long maxNanos;
+    long resetTime = System.nanoTime();
+
+    // JMX 的读取方
+    final Reader mBeanReader = new Reader(this);
+
+    public LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 记录一次调用的耗时
+     * @param nanos 耗时（纳秒）
+     * @param error 调用是否抛出异常
+     */
+    public void record(long nanos, boolean error) {
+        long epoch = startEpoch.getAndIncrement();
+        try {
+            active.record(nanos, error);
+        } finally {
+            if (epoch < 0) {
+                oddEndEpoch.getAndIncrement();
+            } else {
+                evenEndEpoch.getAndIncrement();
+            }
+        }
+    }
+
+    /**
+     * 读取方，记录上次读取时的调用次数和时间，用于计算两次读取之间的吞吐量
+     */
+    public static final class Reader {
+        final LatencyRecorder recorder;
+        long lastCount;
+        long lastTime;
+
+        Reader(LatencyRecorder recorder) {
+            this.recorder = recorder;
+            this.lastTime = recorder.resetTime;
+        }
+
+        public LatencySnapshot snapshot() {
+            return recorder.snapshot(this);
+        }
+    }
+
+    /**
+     * 创建读取方，吞吐量按该读取方上次读取之后的调用次数计算
+     */
+    public Reader newReader() {
+        return new Reader(this);
+    }
+
+    /**
+     * 返回总计的统计结果，吞吐量为创建或 reset 之后的平均值
+     */
+    public synchronized LatencySnapshot snapshot() {
+        flush();
+        return createSnapshot(totalCount, System.nanoTime() - resetTime);
+    }
+
+    synchronized LatencySnapshot snapshot(Reader reader) {
+        flush();
+        long now = System.nanoTime();
+        if (reader.lastCount > totalCount || reader.lastTime - resetTime < 0) {
+            // reset 之后从 reset 的时间开始计算
+            reader.lastCount = 0;
+            reader.lastTime = resetTime;
+        }
+        LatencySnapshot snapshot = createSnapshot(totalCount - reader.lastCount, now - reader.lastTime);
+        reader.lastCount = totalCount;
+        reader.lastTime = now;
+        return snapshot;
+    }
+
+    /**
+     * 把上次读取之后记录的数据累加到总计中
+     */
+    void flush() {
+        Interval interval = swap();
+        for (int i = 0; i < LENGTH; i++) {
+            long count = interval.counts.get(i);
+            if (count != 0) {
+                totalCounts[i] += count;
+                totalCount += count;
+            }
+        }
+        totalNanos += interval.totalNanos.sum();
+        totalErrors += interval.errors.sum();
+        maxNanos = Math.max(maxNanos, interval.max.get());
+    }
+
+    LatencySnapshot createSnapshot(long count, long elapsed) {
+        double throughput = elapsed > 0 ? count * 1e9 / elapsed : 0;
+        return new LatencySnapshot(name, totalCount, totalErrors, totalNanos, throughput,
+                totalCount == 0 ? 0 : (double) totalNanos / totalCount, maxNanos,
+                valueAtPercentile(50), valueAtPercentile(90), valueAtPercentile(99), valueAtPercentile(99.9));
+    }
+
+    @Override
+    public LatencySnapshot getSnapshot() {
+        return mBeanReader.snapshot();
+    }
+
+    /**
+     * 清空总计
+     */
+    @Override
+    public synchronized void reset() {
+        swap();
+        Arrays.fill(totalCounts, 0);
+        totalCount = 0;
+        totalNanos = 0;
+        totalErrors = 0;
+        maxNanos = 0;
+        resetTime = System.nanoTime();
+    }
+
+    /**
+     * 切换写入的区间，返回已经没有写线程的旧区间
+     */
+    Interval swap() {
+        Interval previous = active;
+        inactive.reset();
+        active = inactive;
+        flipPhase();
+        inactive = previous;
+        return previous;
+    }
+
+    void flipPhase() {
+        boolean nextPhaseIsEven = startEpoch.get() < 0;
+        long initialStartValue = nextPhaseIsEven ? 0 : Long.MIN_VALUE;
+        (nextPhaseIsEven ? evenEndEpoch : oddEndEpoch).set(initialStartValue);
+        long startValueAtFlip = startEpoch.getAndSet(initialStartValue);
+        AtomicLong previousEndEpoch = nextPhaseIsEven ? oddEndEpoch : evenEndEpoch;
+        // 切换前进入的写线程全部退出后，旧区间不再被写入
+        while (previousEndEpoch.get() != startValueAtFlip) {
+            Thread.yield();
+        }
+    }
+
+    long valueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long count = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            count += totalCounts[i];
+            if (count >= countAtPercentile) {
+                return Math.min(highestEquivalentValue(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    static int countsIndex(long value) {
+        int bucketIndex = LEADING_ZERO_COUNT_BASE - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + (subBucketIndex - SUB_BUCKET_HALF_COUNT);
+    }
+
+    static long highestEquivalentValue(int index) {
+        int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        int subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (bucketIndex < 0) {
+            subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+            bucketIndex = 0;
+        }
+        return ((long) subBucketIndex << bucketIndex) + (1L << bucketIndex) - 1;
+    }
+
+    static final class Interval {
+        final AtomicLongArray counts = new AtomicLongArray(LENGTH);
+        // LongAdder 按线程分散计数，高并发时不争用同一个变量
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final AtomicLong max = new AtomicLong();
+
+        void record(long nanos, boolean error) {
+            long value = nanos < 0 ? 0 : Math.min(nanos, HIGHEST_TRACKABLE_VALUE);
+            counts.incrementAndGet(countsIndex(value));
+            totalNanos.add(value);
+            if (error) {
+                errors.increment();
+            }
+            long current;
+            while (value > (current = max.get())) {
+                if (max.compareAndSet(current, value)) {
+                    break;
+                }
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < LENGTH; i++) {
+                counts.lazySet(i, 0);
+            }
+            totalNanos.reset();
+            errors.reset();
+            max.set(0);
+        }
+    }
+}
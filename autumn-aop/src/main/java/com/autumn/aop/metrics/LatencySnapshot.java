@@ -0,0 +1,25 @@
+package com.autumn.aop.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 方法耗时的统计结果，耗时单位为纳秒，吞吐量单位为次/秒。count、errorCount、totalTime 只增不减（reset 除外）
+ * @author huangcanjie
+ */
+@Getter
+@AllArgsConstructor
+public class LatencySnapshot {
+
+    private final String name;
+    private final long count;
+    private final long errorCount;
+    private final long totalTime;
+    private final double throughput;
+    private final double mean;
+    private final long max;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long p999;
+}
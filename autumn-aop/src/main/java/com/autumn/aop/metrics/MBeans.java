@@ -0,0 +1,46 @@
+package com.autumn.aop.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.Hashtable;
+
+/**
+ * 以 com.autumn:type=类型,name="名称" 注册和注销 MXBean
+ * @author huangcanjie
+ */
+public class MBeans {
+
+    public static final String JMX_DOMAIN = "com.autumn";
+
+    static final Logger logger = LoggerFactory.getLogger(MBeans.class);
+
+    /**
+     * 注册 MXBean，失败时（如同一 JVM 中多个容器注册了同名的对象）只记录日志
+     * @return  注册的名称，失败时返回 null
+     */
+    public static ObjectName register(MBeanServer mBeanServer, String type, String name, Object mBean) {
+        try {
+            Hashtable<String, String> properties = new Hashtable<>();
+            properties.put("type", type);
+            properties.put("name", ObjectName.quote(name));
+            ObjectName objectName = new ObjectName(JMX_DOMAIN, properties);
+            mBeanServer.registerMBean(mBean, objectName);
+            return objectName;
+        } catch (JMException e) {
+            logger.warn("cannot register {} {} to JMX: {}", type, name, e.toString());
+            return null;
+        }
+    }
+
+    public static void unregister(MBeanServer mBeanServer, ObjectName objectName) {
+        try {
+            mBeanServer.unregisterMBean(objectName);
+        } catch (JMException e) {
+            logger.debug("cannot unregister {}: {}", objectName, e.toString());
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.autumn.aop.metrics;
+
+/**
+ * 以 JMX 导出的方法耗时统计，ObjectName 为 com.autumn:type=Timed,name="目标类名.方法签名"
+ * @author huangcanjie
+ */
+public interface TimerMXBean {
+
+    LatencySnapshot getSnapshot();
+
+    void reset();
+}
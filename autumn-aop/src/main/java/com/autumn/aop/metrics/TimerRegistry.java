@@ -0,0 +1,174 @@
+package com.autumn.aop.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 按名称管理 LatencyRecorder，每个记录器注册为一个 JMX MXBean，
+ * 并可以导出 Prometheus 格式的文本，或者由内置的 HTTP 服务在 /metrics 上提供
+ * @author huangcanjie
+ */
+public class TimerRegistry implements AutoCloseable {
+
+    public static final String TEXT_PATH = "/metrics";
+
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    final ConcurrentMap<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+
+    // 为 null 时不注册 JMX
+    final MBeanServer mBeanServer;
+    final List<ObjectName> registeredNames = new CopyOnWriteArrayList<>();
+
+    HttpServer httpServer;
+
+    public TimerRegistry() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public TimerRegistry(MBeanServer mBeanServer) {
+        this.mBeanServer = mBeanServer;
+    }
+
+    /**
+     * 获取或创建记录器，创建时注册 JMX
+     */
+    public LatencyRecorder getRecorder(String name) {
+        LatencyRecorder recorder = recorders.get(name);
+        if (recorder == null) {
+            LatencyRecorder created = new LatencyRecorder(name);
+            recorder = recorders.putIfAbsent(name, created);
+            if (recorder == null) {
+                recorder = created;
+                registerMBean(created);
+            }
+        }
+        return recorder;
+    }
+
+    public List<LatencySnapshot> snapshots() {
+        List<LatencySnapshot> snapshots = new ArrayList<>(recorders.size());
+        recorders.values().forEach(recorder -> snapshots.add(recorder.snapshot()));
+        snapshots.sort(Comparator.comparing(LatencySnapshot::getName));
+        return snapshots;
+    }
+
+    /**
+     * 以 Prometheus 文本格式输出所有记录器的统计结果，耗时单位为秒
+     */
+    public void writeText(Appendable out) throws IOException {
+        List<LatencySnapshot> snapshots = snapshots();
+        out.append("# TYPE autumn_timed_seconds summary\n");
+        for (LatencySnapshot snapshot : snapshots) {
+            String label = "method=\"" + escape(snapshot.getName()) + "\"";
+            appendQuantile(out, label, "0.5", snapshot.getP50());
+            appendQuantile(out, label, "0.9", snapshot.getP90());
+            appendQuantile(out, label, "0.99", snapshot.getP99());
+            appendQuantile(out, label, "0.999", snapshot.getP999());
+            appendLine(out, "autumn_timed_seconds_count", label, Long.toString(snapshot.getCount()));
+            appendLine(out, "autumn_timed_seconds_sum", label, seconds(snapshot.getTotalTime()));
+        }
+        out.append("# TYPE autumn_timed_seconds_max gauge\n");
+        for (LatencySnapshot snapshot : snapshots) {
+            appendLine(out, "autumn_timed_seconds_max", "method=\"" + escape(snapshot.getName()) + "\"", seconds(snapshot.getMax()));
+        }
+        out.append("# TYPE autumn_timed_errors_total counter\n");
+        for (LatencySnapshot snapshot : snapshots) {
+            appendLine(out, "autumn_timed_errors_total", "method=\"" + escape(snapshot.getName()) + "\"", Long.toString(snapshot.getErrorCount()));
+        }
+    }
+
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeText(sb);
+        } catch (IOException e) {
+            // StringBuilder 不会抛出 IOException
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 启动 HTTP 服务，在 /metrics 上提供文本格式的统计结果
+     * @param port  端口，0 表示随机端口
+     * @return  实际监听的地址
+     */
+    public synchronized InetSocketAddress startHttpEndpoint(int port) throws IOException {
+        if (httpServer != null) {
+            return httpServer.getAddress();
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext(TEXT_PATH, exchange -> {
+            try {
+                byte[] body = toText().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        httpServer = server;
+        logger.info("timed metrics available at http://{}:{}{}", server.getAddress().getHostString(), server.getAddress().getPort(), TEXT_PATH);
+        return server.getAddress();
+    }
+
+    /**
+     * 停止 HTTP 服务，注销 JMX
+     */
+    @Override
+    public synchronized void close() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+        registeredNames.forEach(name -> MBeans.unregister(mBeanServer, name));
+        registeredNames.clear();
+    }
+
+    void registerMBean(LatencyRecorder recorder) {
+        if (mBeanServer == null) {
+            return;
+        }
+        ObjectName name = MBeans.register(mBeanServer, "Timed", recorder.getName(), recorder);
+        if (name != null) {
+            registeredNames.add(name);
+        }
+    }
+
+    static void appendQuantile(Appendable out, String label, String quantile, long nanos) throws IOException {
+        appendLine(out, "autumn_timed_seconds", label + ",quantile=\"" + quantile + "\"", seconds(nanos));
+    }
+
+    static void appendLine(Appendable out, String metric, String labels, String value) throws IOException {
+        out.append(metric).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    static String seconds(double nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
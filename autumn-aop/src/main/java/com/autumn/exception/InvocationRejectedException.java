@@ -0,0 +1,16 @@
+package com.autumn.exception;
+
+/**
+ * 调用被 @Bulkhead 或 @RateLimited 拒绝
+ * @author huangcanjie
+ */
+public class InvocationRejectedException extends NestedRuntimeException {
+
+    public InvocationRejectedException(String message) {
+        super(message);
+    }
+
+    public InvocationRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
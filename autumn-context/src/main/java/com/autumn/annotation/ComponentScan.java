@@ -15,4 +15,31 @@ public @interface ComponentScan {
      * Package names to scan. Default to current package.
      */
     String[] value() default {};
+
+    /**
+     * Only classes matching at least one of these filters are scanned. Default to all classes.
+     */
+    Filter[] includeFilters() default {};
+
+    /**
+     * Classes matching any of these filters are not scanned.
+     */
+    Filter[] excludeFilters() default {};
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target({})
+    @interface Filter {
+
+        FilterType type() default FilterType.ANNOTATION;
+
+        /**
+         * Annotation or super types, for ANNOTATION and ASSIGNABLE_TYPE.
+         */
+        Class<?>[] classes() default {};
+
+        /**
+         * Class name patterns, for GLOB and REGEX.
+         */
+        String[] pattern() default {};
+    }
 }
@@ -0,0 +1,28 @@
+package com.autumn.annotation;
+
+/**
+ * 组件扫描过滤器的类型
+ * @author huangcanjie
+ */
+public enum FilterType {
+
+    /**
+     * 按类名匹配，* 匹配除 . 以外的任意字符，** 匹配任意字符，如 com.autumn.test.** 、 com.autumn.*.dto.*
+     */
+    GLOB,
+
+    /**
+     * 按类名匹配正则表达式
+     */
+    REGEX,
+
+    /**
+     * 类上标注了指定注解（包括元注解）
+     */
+    ANNOTATION,
+
+    /**
+     * 类可以赋值给指定类型
+     */
+    ASSIGNABLE_TYPE
+}
@@ -16,7 +16,9 @@ import com.autumn.exception.NoSuchBeanDefinitionException;
 import com.autumn.exception.NoUniqueBeanDefinitionException;
 import com.autumn.exception.UnsatisfiedDependencyException;
 import com.autumn.io.PropertiesResolver;
+import com.autumn.io.ResourceFilter;
 import com.autumn.io.ResourceResolver;
+import com.autumn.io.ScanCache;
 import com.autumn.utils.ClassUtils;
 import com.sun.istack.internal.Nullable;
 import org.slf4j.Logger;
@@ -34,15 +36,18 @@ import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author huangcanjie
@@ -104,6 +109,9 @@ public class AnotherAnnotationConfigApplicationContext implements ConfigurableAp
                 log.debug("bean initialized: {}", def);
             });
         }
+
+        // 容器刷新完成，释放扫描时建立的 jar 索引
+        ResourceResolver.clearJarIndexCache();
     }
 
     boolean isBeanPostProcessorDefinition(BeanDefinition def) {
@@ -376,19 +384,38 @@ public class AnotherAnnotationConfigApplicationContext implements ConfigurableAp
         final String[] scanPackages = componentScan == null || componentScan.value().length == 0 ? new String[]{configClass.getPackage().getName()} : componentScan.value();
         log.info("component scan in packages: {}", Arrays.toString(scanPackages));
 
+        // 开启 autumn.scan.parallel 后，多个包、多个根路径和目录子树在 ForkJoinPool 中并行扫描
+        final boolean parallel = this.propertiesResolver.getProperty("${autumn.scan.parallel:false}", boolean.class);
+        // 配置了 autumn.scan.cache-file 后，未变化的 jar 包和目录直接使用上次启动保存的扫描结果
+        final String cacheFile = this.propertiesResolver.getProperty("${autumn.scan.cache-file:}");
+        final ScanCache scanCache = cacheFile.isEmpty() ? null : ScanCache.load(Paths.get(cacheFile));
+        // includeFilters / excludeFilters 中按类名的规则在遍历时生效，被排除的包目录不会被遍历
+        final ComponentScanFilter scanFilter = componentScan == null ? null : new ComponentScanFilter(componentScan);
+        final ResourceFilter resourceFilter = scanFilter == null || scanFilter.isEmpty() ? ResourceFilter.ACCEPT_ALL : scanFilter;
+
+        // 并行扫描时工作线程的上下文类加载器不是调用方的（如 web 容器的 WEB-INF 类加载器），先取出调用方的类加载器
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        final ClassLoader classLoader = contextClassLoader == null ? getClass().getClassLoader() : contextClassLoader;
         // 使用 ResourceResolver 收集指定包下的 Class 资源，得到他们的类名
-        Set<String> classNameSet = new HashSet<>();
-        for (String pkg : scanPackages) {
+        Stream<String> packages = parallel ? Arrays.stream(scanPackages).parallel() : Arrays.stream(scanPackages);
+        List<List<String>> classLists = packages.map(pkg -> {
             log.debug("scan package: {}", pkg);
-            ResourceResolver resourceResolver = new ResourceResolver(pkg);
-            List<String> classList = resourceResolver.scan(r -> {
+            ResourceResolver resourceResolver = new ResourceResolver(pkg, parallel, scanCache, resourceFilter, classLoader);
+            return resourceResolver.scan(r -> {
                 String name = r.getName();
                 if (name.endsWith(".class")) {
                     return name.substring(0, name.length() - 6).replace('/', '.').replace('\\', '.');
                 }
                 return null;
             });
+        }).collect(Collectors.toList());
+        if (scanCache != null) {
+            scanCache.save();
+        }
 
+        // 按包的顺序合并结果
+        Set<String> classNameSet = new LinkedHashSet<>();
+        for (List<String> classList : classLists) {
             if (log.isDebugEnabled()) {
                 classList.forEach(c -> log.debug("class found by component scan: {}", c));
             }
@@ -396,6 +423,23 @@ public class AnotherAnnotationConfigApplicationContext implements ConfigurableAp
             classNameSet.addAll(classList);
         }
 
+        // 按注解、类型的过滤规则需要加载类（不初始化）后判断
+        if (scanFilter != null && scanFilter.hasTypeFilters()) {
+            classNameSet.removeIf(className -> {
+                Class<?> clazz;
+                try {
+                    clazz = Class.forName(className, false, classLoader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    throw new BeanDefinitionException(String.format("Could not load class %s for component scan filters.", className), e);
+                }
+                boolean excluded = !scanFilter.accept(clazz);
+                if (excluded) {
+                    log.debug("class excluded by component scan filter: {}", className);
+                }
+                return excluded;
+            });
+        }
+
         // 查找 @Import 中引入的类
         Import importConfig = ClassUtils.findAnnotation(configClass, Import.class);
         if (importConfig != null) {
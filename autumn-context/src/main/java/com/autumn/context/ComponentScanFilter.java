@@ -0,0 +1,174 @@
+package com.autumn.context;
+
+import com.autumn.annotation.ComponentScan;
+import com.autumn.annotation.FilterType;
+import com.autumn.exception.BeanDefinitionException;
+import com.autumn.io.ResourceFilter;
+import com.autumn.utils.ClassUtils;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 根据 @ComponentScan 的 includeFilters / excludeFilters 过滤扫描结果。
+ * GLOB、REGEX 只依赖类名，在 ResourceResolver 遍历时生效，以 .** 结尾的 GLOB 排除规则会跳过整个包目录；
+ * ANNOTATION、ASSIGNABLE_TYPE 需要类型信息，在扫描完成后加载类（不初始化）再判断
+ * @author huangcanjie
+ */
+class ComponentScanFilter implements ResourceFilter {
+
+    final List<Matcher> includes;
+    final List<Matcher> excludes;
+    // 以 .** 结尾的 GLOB 排除规则，匹配包名时整个目录都被排除
+    final List<Pattern> excludedPackages = new ArrayList<>();
+
+    ComponentScanFilter(ComponentScan componentScan) {
+        this.includes = createMatchers(componentScan.includeFilters());
+        this.excludes = createMatchers(componentScan.excludeFilters());
+        for (ComponentScan.Filter filter : componentScan.excludeFilters()) {
+            if (filter.type() == FilterType.GLOB) {
+                for (String glob : filter.pattern()) {
+                    if (glob.endsWith(".**")) {
+                        excludedPackages.add(Pattern.compile(globToRegex(glob.substring(0, glob.length() - 3))));
+                    }
+                }
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return includes.isEmpty() && excludes.isEmpty();
+    }
+
+    /**
+     * 是否存在需要加载类才能判断的过滤规则
+     */
+    boolean hasTypeFilters() {
+        return includes.stream().anyMatch(m -> !m.isNameMatcher()) || excludes.stream().anyMatch(m -> !m.isNameMatcher());
+    }
+
+    @Override
+    public boolean skipDirectory(String dirName) {
+        String packageName = dirName.replace('/', '.');
+        for (Pattern pattern : excludedPackages) {
+            if (pattern.matcher(packageName).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean accept(String name) {
+        // 非 class 资源由调用方自行处理
+        if (!name.endsWith(".class")) {
+            return true;
+        }
+        String className = name.substring(0, name.length() - 6).replace('/', '.');
+        for (Matcher exclude : excludes) {
+            if (exclude.isNameMatcher() && exclude.matches(className)) {
+                return false;
+            }
+        }
+        // 包含规则中有类型规则时，留到加载类之后判断
+        if (includes.isEmpty() || includes.stream().anyMatch(m -> !m.isNameMatcher())) {
+            return true;
+        }
+        return includes.stream().anyMatch(m -> m.matches(className));
+    }
+
+    /**
+     * 按全部规则判断已加载的类
+     */
+    boolean accept(Class<?> clazz) {
+        for (Matcher exclude : excludes) {
+            if (exclude.matches(clazz)) {
+                return false;
+            }
+        }
+        return includes.isEmpty() || includes.stream().anyMatch(m -> m.matches(clazz));
+    }
+
+    static List<Matcher> createMatchers(ComponentScan.Filter[] filters) {
+        List<Matcher> matchers = new ArrayList<>();
+        for (ComponentScan.Filter filter : filters) {
+            switch (filter.type()) {
+                case GLOB:
+                case REGEX:
+                    if (filter.pattern().length == 0) {
+                        throw new BeanDefinitionException(String.format("@ComponentScan filter of type %s must specify pattern.", filter.type()));
+                    }
+                    for (String p : filter.pattern()) {
+                        matchers.add(new Matcher(filter.type(), Pattern.compile(filter.type() == FilterType.GLOB ? globToRegex(p) : p), null));
+                    }
+                    break;
+                default:
+                    if (filter.classes().length == 0) {
+                        throw new BeanDefinitionException(String.format("@ComponentScan filter of type %s must specify classes.", filter.type()));
+                    }
+                    for (Class<?> c : filter.classes()) {
+                        if (filter.type() == FilterType.ANNOTATION && !c.isAnnotation()) {
+                            throw new BeanDefinitionException(String.format("@ComponentScan filter of type ANNOTATION requires annotation class, but got %s.", c.getName()));
+                        }
+                        matchers.add(new Matcher(filter.type(), null, c));
+                    }
+            }
+        }
+        return matchers;
+    }
+
+    static String globToRegex(String glob) {
+        StringBuilder sb = new StringBuilder(glob.length() + 16);
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    sb.append(".*");
+                    i++;
+                } else {
+                    sb.append("[^.]*");
+                }
+            } else if (c == '?') {
+                sb.append("[^.]");
+            } else {
+                sb.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return sb.toString();
+    }
+
+    static class Matcher {
+
+        final FilterType type;
+        final Pattern pattern;
+        final Class<?> target;
+
+        Matcher(FilterType type, Pattern pattern, Class<?> target) {
+            this.type = type;
+            this.pattern = pattern;
+            this.target = target;
+        }
+
+        boolean isNameMatcher() {
+            return pattern != null;
+        }
+
+        boolean matches(String className) {
+            return pattern.matcher(className).matches();
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean matches(Class<?> clazz) {
+            switch (type) {
+                case ANNOTATION:
+                    return ClassUtils.findAnnotation(clazz, (Class<? extends Annotation>) target) != null;
+                case ASSIGNABLE_TYPE:
+                    return target.isAssignableFrom(clazz);
+                default:
+                    return matches(clazz.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.autumn.io;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * jar 包的条目索引，只读取一次 jar 的中央目录，保存排序后的文件条目名，支持按前缀（包路径）查找
+ * @author huangcanjie
+ */
+class JarIndex {
+
+    private final Path jarPath;
+    // 排序后的文件条目名，如 com/autumn/Hello.class，不包含目录条目
+    private final String[] entries;
+
+    private JarIndex(Path jarPath, String[] entries) {
+        this.jarPath = jarPath;
+        this.entries = entries;
+    }
+
+    static JarIndex load(Path jarPath) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(jarPath.toFile())) {
+            Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+            while (enumeration.hasMoreElements()) {
+                ZipEntry entry = enumeration.nextElement();
+                if (!entry.isDirectory()) {
+                    names.add(entry.getName());
+                }
+            }
+        }
+        String[] entries = names.toArray(new String[0]);
+        Arrays.sort(entries);
+        return new JarIndex(jarPath, entries);
+    }
+
+    /**
+     * 遍历指定目录下（包含子目录）的所有文件条目
+     * @param dir       目录，如 com/autumn
+     * @param consumer  条目名的处理
+     */
+    void forEachInDirectory(String dir, Consumer<String> consumer) {
+        forEachInDirectory(dir, ResourceFilter.ACCEPT_ALL, consumer);
+    }
+
+    /**
+     * 遍历指定目录下的文件条目，被过滤器跳过的子目录按前缀整体跳过，不逐个检查其中的条目
+     * @return  被跳过的条目数
+     */
+    int forEachInDirectory(String dir, ResourceFilter filter, Consumer<String> consumer) {
+        String prefix = dir.isEmpty() || dir.endsWith("/") ? dir : dir + "/";
+        // 目录是否被跳过的判断结果，同一目录只判断一次
+        Map<String, Boolean> skipDirs = new HashMap<>();
+        int skipped = 0;
+        // 二分查找第一个大于等于前缀的位置，之后的条目直到不再匹配前缀为止
+        int i = lowerBound(prefix);
+        while (i < entries.length && entries[i].startsWith(prefix)) {
+            String name = entries[i];
+            String skipDir = findSkippedDirectory(name, prefix.length(), filter, skipDirs);
+            if (skipDir != null) {
+                int end = lowerBound(skipDir + '/' + Character.MAX_VALUE);
+                skipped += end - i;
+                i = end;
+                continue;
+            }
+            if (filter.accept(name)) {
+                consumer.accept(name);
+            } else {
+                skipped++;
+            }
+            i++;
+        }
+        return skipped;
+    }
+
+    /**
+     * 从扫描的根目录开始逐级检查条目所在的目录，返回第一个被跳过的目录
+     */
+    static String findSkippedDirectory(String name, int prefixLength, ResourceFilter filter, Map<String, Boolean> skipDirs) {
+        int n = prefixLength > 0 ? prefixLength - 1 : name.indexOf('/');
+        while (n > 0) {
+            String dir = name.substring(0, n);
+            if (skipDirs.computeIfAbsent(dir, filter::skipDirectory)) {
+                return dir;
+            }
+            n = name.indexOf('/', n + 1);
+        }
+        return null;
+    }
+
+    private int lowerBound(String key) {
+        int i = Arrays.binarySearch(entries, key);
+        return i < 0 ? -i - 1 : i;
+    }
+
+    Path getJarPath() {
+        return jarPath;
+    }
+
+    int size() {
+        return entries.length;
+    }
+}
@@ -3,12 +3,137 @@ package com.autumn.io;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
 /**
+ * classpath 下的资源。
+ * 文件系统中的资源 path 为 file:/xxx/com/autumn/Hello.class；
+ * jar 包中的资源 path 为 jar 包路径 jar:file:/xxx/abc.jar!，name 为条目名 com/autumn/Hello.class
  * @author huangcanjie
  */
 @Data
 @AllArgsConstructor
 public class Resource {
+
+    // 小于这个大小的文件读入堆中，映射只用于大文件，避免映射在 GC 之前不释放（Windows 上还会锁定文件）
+    static final long MAP_THRESHOLD = 64 * 1024;
     private String path;
     private String name;
+
+    public boolean isFile() {
+        return path.startsWith("file:");
+    }
+
+    /**
+     * 打开读取资源内容的通道，由调用方关闭
+     */
+    public ReadableByteChannel openChannel() throws IOException {
+        if (isFile()) {
+            return FileChannel.open(toFilePath(), StandardOpenOption.READ);
+        }
+        return Channels.newChannel(openConnection().getInputStream());
+    }
+
+    /**
+     * 资源的字节数，未知时返回 -1
+     */
+    public long contentLength() throws IOException {
+        if (isFile()) {
+            return Files.size(toFilePath());
+        }
+        return openConnection().getContentLengthLong();
+    }
+
+    /**
+     * 资源的最后修改时间，未知时返回 0
+     */
+    public long lastModified() throws IOException {
+        if (isFile()) {
+            return Files.getLastModifiedTime(toFilePath()).toMillis();
+        }
+        return openConnection().getLastModified();
+    }
+
+    /**
+     * 读取资源的全部内容。文件系统中的大文件使用内存映射，不复制到堆中，小文件读入堆中；
+     * jar 包中的资源按条目大小分配一次缓冲区，从解压流中直接读入
+     */
+    public ByteBuffer asByteBuffer() throws IOException {
+        if (isFile()) {
+            try (FileChannel channel = FileChannel.open(toFilePath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size >= MAP_THRESHOLD) {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                }
+                ByteBuffer buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+                return buffer;
+            }
+        }
+        URLConnection connection = openConnection();
+        long length = connection.getContentLengthLong();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Resource too large: " + this);
+        }
+        try (ReadableByteChannel channel = Channels.newChannel(connection.getInputStream())) {
+            ByteBuffer buffer = ByteBuffer.allocate(length < 0 ? 8192 : (int) length);
+            ByteBuffer probe = null;
+            while (true) {
+                if (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        break;
+                    }
+                    continue;
+                }
+                // 缓冲区已满时先读一个字节确认是否还有数据，大小与条目记录一致时不扩容
+                if (probe == null) {
+                    probe = ByteBuffer.allocate(1);
+                }
+                probe.clear();
+                int n = channel.read(probe);
+                if (n < 0) {
+                    break;
+                }
+                if (n == 0) {
+                    continue;
+                }
+                // 大小未知或者与条目记录的不一致时扩容
+                if (buffer.capacity() == Integer.MAX_VALUE) {
+                    throw new IOException("Resource too large: " + this);
+                }
+                int capacity = (int) Math.min(Integer.MAX_VALUE, buffer.capacity() * 2L + 1);
+                ByteBuffer larger = ByteBuffer.allocate(capacity);
+                buffer.flip();
+                larger.put(buffer);
+                probe.flip();
+                larger.put(probe);
+                buffer = larger;
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    Path toFilePath() {
+        return Paths.get(path.substring(5));
+    }
+
+    URLConnection openConnection() throws IOException {
+        return new URL(path + "/" + name).openConnection();
+    }
 }
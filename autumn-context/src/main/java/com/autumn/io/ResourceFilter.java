@@ -0,0 +1,23 @@
+package com.autumn.io;
+
+/**
+ * 扫描过程中的过滤器，在创建 Resource、读取或加载资源之前调用。
+ * 目录名和资源名都以 / 分隔，如 com/autumn/test 和 com/autumn/test/Hello.class
+ * @author huangcanjie
+ */
+public interface ResourceFilter {
+
+    ResourceFilter ACCEPT_ALL = name -> true;
+
+    /**
+     * 是否跳过整个目录（包括子目录），被跳过的目录不会再向下遍历
+     */
+    default boolean skipDirectory(String dirName) {
+        return false;
+    }
+
+    /**
+     * 是否保留该资源
+     */
+    boolean accept(String name);
+}
@@ -11,25 +11,57 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystems;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * @author huangcanjie
  */
 public class ResourceResolver {
 
+    // jar 包路径 -> 条目索引
+    static final Map<Path, JarIndex> JAR_INDEX_CACHE = new ConcurrentHashMap<>();
+
     Logger log = LoggerFactory.getLogger(getClass());
 
     String basePackage;
 
+    // 并行扫描：多个 classpath 根路径、目录子树分别作为任务提交到 ForkJoinPool，mapper 需要线程安全
+    boolean parallel;
+
+    // 持久化的扫描结果缓存，为 null 时不使用缓存
+    ScanCache scanCache;
+
+    // 扫描时的过滤器，被跳过的目录不再向下遍历，被过滤的资源不会交给 mapper
+    ResourceFilter filter;
+
+    // 查找资源的类加载器，在创建时确定，不随扫描线程变化
+    ClassLoader classLoader;
+
+    // 扫描统计：交给 mapper 的资源数、被过滤的资源数（包括被跳过的 jar 目录中的条目）、被跳过的文件目录数
+    final AtomicInteger visitedCount = new AtomicInteger();
+    final AtomicInteger skippedCount = new AtomicInteger();
+    final AtomicInteger skippedDirectoryCount = new AtomicInteger();
+
     public static void main(String[] args) {
         List<String> classList = new ResourceResolver("lombok").scan(r -> {
             // 扫描后得到的名称为 org/xxx/xxx/Hello.class
@@ -45,7 +77,31 @@ public class ResourceResolver {
     }
 
     public ResourceResolver(String basePackage) {
+        this(basePackage, false);
+    }
+
+    public ResourceResolver(String basePackage, boolean parallel) {
+        this(basePackage, parallel, null);
+    }
+
+    public ResourceResolver(String basePackage, boolean parallel, ScanCache scanCache) {
+        this(basePackage, parallel, scanCache, ResourceFilter.ACCEPT_ALL);
+    }
+
+    public ResourceResolver(String basePackage, boolean parallel, ScanCache scanCache, ResourceFilter filter) {
+        this(basePackage, parallel, scanCache, filter, null);
+    }
+
+    /**
+     * @param classLoader  查找资源的类加载器，为 null 时使用创建时线程的上下文类加载器。
+     *                     在其他线程（如 ForkJoinPool 的工作线程）中创建时，应传入调用方的类加载器
+     */
+    public ResourceResolver(String basePackage, boolean parallel, ScanCache scanCache, ResourceFilter filter, ClassLoader classLoader) {
         this.basePackage = basePackage;
+        this.parallel = parallel;
+        this.scanCache = scanCache;
+        this.filter = filter;
+        this.classLoader = classLoader == null ? getContextClassLoader() : classLoader;
     }
 
     public <R> List<R> scan(Function<Resource, R> mapper) {
@@ -57,6 +113,10 @@ public class ResourceResolver {
             // 扫描路径，并将资源放置到集合中，mapper的作用为将对应的 Resource，转换为指定的参数R 类型
             List<R> collector = new ArrayList<>();
             scan0(basePackagePath, path, collector, mapper);
+            if (filter != ResourceFilter.ACCEPT_ALL) {
+                log.info("scan {}: {} resources visited, {} resources skipped, {} directories skipped", this.basePackage,
+                        visitedCount.get(), skippedCount.get(), skippedDirectoryCount.get());
+            }
             return collector;
         } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -69,7 +129,9 @@ public class ResourceResolver {
         log.debug("scan path:{}", path);
 
         // 获取类加载器，扫描 path 路径下的资源
-        Enumeration<URL> enumeration = getContextClassLoader().getResources(path);
+        Enumeration<URL> enumeration = classLoader.getResources(path);
+        // 并行模式下每个根路径一个任务，按根路径的顺序合并结果
+        List<ForkJoinTask<List<R>>> tasks = new ArrayList<>();
         while (enumeration.hasMoreElements()) {
             URL url = enumeration.nextElement();
             URI uri = url.toURI();
@@ -83,35 +145,287 @@ public class ResourceResolver {
                 uriBaseStr = uriBaseStr.substring(5);
             }
             if (uriStr.startsWith("jar:")) {
-                scanFile(true, uriBaseStr, jarUriToPath(basePackagePath, uri), collector, mapper);
+                Path jarPath = jarUriToPath(uri);
+                if (parallel) {
+                    final String jarBaseStr = uriBaseStr;
+                    tasks.add(ForkJoinTask.adapt(() -> {
+                        List<R> list = new ArrayList<>();
+                        scanJar(jarBaseStr, jarPath, basePackagePath, list, mapper);
+                        return list;
+                    }));
+                } else {
+                    scanJar(uriBaseStr, jarPath, basePackagePath, collector, mapper);
+                }
+            } else if (scanCache != null) {
+                Path root = Paths.get(uri);
+                if (parallel) {
+                    final String dirBaseStr = uriBaseStr;
+                    tasks.add(ForkJoinTask.adapt(() -> {
+                        List<R> list = new ArrayList<>();
+                        scanCachedFile(dirBaseStr, root, list, mapper);
+                        return list;
+                    }));
+                } else {
+                    scanCachedFile(uriBaseStr, root, collector, mapper);
+                }
+            } else {
+                if (parallel) {
+                    tasks.add(new DirectoryScanTask<>(removeTrailingSlash(uriBaseStr), Paths.get(uri), mapper));
+                } else {
+                    scanFile(uriBaseStr, Paths.get(uri), collector, mapper);
+                }
+            }
+        }
+
+        if (!tasks.isEmpty()) {
+            MergeTask<R> mergeTask = new MergeTask<>(tasks);
+            // 已经在 ForkJoinPool 中（例如按包并行扫描时），直接在当前工作线程中执行
+            collector.addAll(ForkJoinTask.inForkJoinPool() ? mergeTask.invoke() : ForkJoinPool.commonPool().invoke(mergeTask));
+        }
+    }
+
+    <R> void scanJar(String uriBaseStr, Path jarPath, String basePackagePath, List<R> collector, Function<Resource, R> mapper) throws IOException {
+        String baseDir = removeTrailingSlash(uriBaseStr);
+        if (scanCache != null) {
+            // jar 包的大小、修改时间都没有变化时，直接使用缓存的资源名
+            String key = "jar:" + jarPath + "!/" + basePackagePath;
+            String fingerprint = ScanCache.jarFingerprint(jarPath);
+            ScanCache.Entry entry = scanCache.get(key);
+            if (entry == null || !fingerprint.equals(entry.getFingerprint())) {
+                List<String> names = new ArrayList<>();
+                getJarIndex(jarPath).forEachInDirectory(basePackagePath, names::add);
+                entry = new ScanCache.Entry(fingerprint, Collections.emptyList(), names);
             } else {
-                scanFile(false, uriBaseStr, Paths.get(uri), collector, mapper);
+                log.debug("scan cache hit: {}", key);
             }
+            scanCache.put(key, entry);
+            // 缓存中保存的是未过滤的结果，这里再按过滤器筛选
+            Map<String, Boolean> skipDirs = new HashMap<>();
+            for (String name : entry.getNames()) {
+                if (isSkipped(name, basePackagePath, skipDirs)) {
+                    skippedCount.incrementAndGet();
+                } else {
+                    addResource(new Resource(baseDir, name), collector, mapper);
+                }
+            }
+            return;
         }
+        // 从共享的索引中按包路径前缀查找，不再重复读取 jar 的中央目录，被跳过的目录按前缀整体跳过
+        int skipped = getJarIndex(jarPath).forEachInDirectory(basePackagePath, filter, name -> {
+            // 如果是 jar 包中的资源，直接新建 Resource 类
+            addResource(new Resource(baseDir, name), collector, mapper);
+        });
+        skippedCount.addAndGet(skipped);
     }
 
-    <R> void scanFile(boolean isJar, String uriBaseStr, Path root, List<R> collector, Function<Resource,R> mapper) throws IOException {
+    <R> void scanCachedFile(String uriBaseStr, Path root, List<R> collector, Function<Resource, R> mapper) throws IOException {
         String baseDir = removeTrailingSlash(uriBaseStr);
-        Files.walk(root).filter(Files::isRegularFile).forEach(file -> {
-            Resource resource = null;
-            if (isJar) {
-                // 如果是 jar 包中的资源，直接新建 Resource 类
-                resource = new Resource(baseDir, removeLeadingSlash(file.toString()));
+        // 所有子目录的修改时间都没有变化时，直接使用缓存的资源名，否则重新遍历目录
+        String key = "dir:" + root;
+        ScanCache.Entry entry = scanCache.get(key);
+        if (entry == null || !entry.getFingerprint().equals(ScanCache.directoryFingerprint(root, entry.getDirs()))) {
+            List<String> dirs = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.forEach(p -> {
+                    if (Files.isDirectory(p)) {
+                        dirs.add(root.relativize(p).toString());
+                    } else if (Files.isRegularFile(p)) {
+                        names.add(root.relativize(p).toString());
+                    }
+                });
+            }
+            entry = new ScanCache.Entry(ScanCache.directoryFingerprint(root, dirs), dirs, names);
+        } else {
+            log.debug("scan cache hit: {}", key);
+        }
+        // 遍历过程中目录被删除时无法得到指纹，不写入缓存
+        if (entry.getFingerprint() != null) {
+            scanCache.put(key, entry);
+        }
+        // 缓存中保存的是未过滤的结果，这里再按过滤器筛选
+        Map<String, Boolean> skipDirs = new HashMap<>();
+        String rootName = relativeName(baseDir, root);
+        for (String name : entry.getNames()) {
+            Resource resource = fileResource(baseDir, root.resolve(name));
+            if (isSkipped(resource.getName().replace('\\', '/'), rootName, skipDirs)) {
+                skippedCount.incrementAndGet();
             } else {
-                // 普通路径下的资源， 给路径前缀加上 file:
-                String path = file.toString();
-                String name = removeLeadingSlash(path.substring(baseDir.length()));
-                resource = new Resource("file:" + path, name);
+                addResource(resource, collector, mapper);
+            }
+        }
+    }
+
+    <R> void scanFile(String uriBaseStr, Path root, List<R> collector, Function<Resource,R> mapper) throws IOException {
+        String baseDir = removeTrailingSlash(uriBaseStr);
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                // 被跳过的目录不再向下遍历
+                if (filter.skipDirectory(relativeName(baseDir, dir))) {
+                    skippedDirectoryCount.incrementAndGet();
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
             }
-            log.debug("find resource: {}", resource);
-            // 将resource 转换为 R 参数类型
-            R r = mapper.apply(resource);
-            if (r != null) {
-                collector.add(r);
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (Files.isRegularFile(file)) {
+                    if (filter.accept(relativeName(baseDir, file))) {
+                        addResource(fileResource(baseDir, file), collector, mapper);
+                    } else {
+                        skippedCount.incrementAndGet();
+                    }
+                }
+                return FileVisitResult.CONTINUE;
             }
         });
     }
 
+    Resource fileResource(String baseDir, Path file) {
+        // 普通路径下的资源， 给路径前缀加上 file:
+        String path = file.toString();
+        String name = removeLeadingSlash(path.substring(baseDir.length()));
+        return new Resource("file:" + path, name);
+    }
+
+    /**
+     * 文件或目录相对 classpath 根路径的名称，以 / 分隔，用于过滤
+     */
+    String relativeName(String baseDir, Path file) {
+        return removeLeadingSlash(file.toString().substring(baseDir.length())).replace('\\', '/');
+    }
+
+    /**
+     * 资源所在目录（从扫描根目录开始）被跳过，或者资源本身被过滤
+     */
+    boolean isSkipped(String name, String rootName, Map<String, Boolean> skipDirs) {
+        return JarIndex.findSkippedDirectory(name, rootName.length() + 1, filter, skipDirs) != null || !filter.accept(name);
+    }
+
+    <R> void addResource(Resource resource, List<R> collector, Function<Resource, R> mapper) {
+        log.debug("find resource: {}", resource);
+        // 将resource 转换为 R 参数类型
+        visitedCount.incrementAndGet();
+        R r = mapper.apply(resource);
+        if (r != null) {
+            collector.add(r);
+        }
+    }
+
+    JarIndex getJarIndex(Path jarPath) throws IOException {
+        try {
+            // 同一个 jar 包在整个进程中只建立一次索引，供所有包、所有扫描共享
+            return JAR_INDEX_CACHE.computeIfAbsent(jarPath, p -> {
+                try {
+                    JarIndex index = JarIndex.load(p);
+                    log.debug("index jar {} with {} entries", p, index.size());
+                    return index;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 释放 jar 包的条目索引，容器完成刷新后调用
+     */
+    public static void clearJarIndexCache() {
+        JAR_INDEX_CACHE.clear();
+    }
+
+    /**
+     * 并行扫描一个目录：当前目录的文件在本任务中处理，子目录拆分为子任务。
+     * 目录项按名称排序，结果按 当前目录文件、各子目录 的顺序合并，因此输出顺序是确定的
+     */
+    class DirectoryScanTask<R> extends RecursiveTask<List<R>> {
+
+        private static final long serialVersionUID = 1L;
+
+        final String baseDir;
+        final Path dir;
+        final Function<Resource, R> mapper;
+
+        DirectoryScanTask(String baseDir, Path dir, Function<Resource, R> mapper) {
+            this.baseDir = baseDir;
+            this.dir = dir;
+            this.mapper = mapper;
+        }
+
+        @Override
+        protected List<R> compute() {
+            // 被跳过的目录不再向下遍历
+            if (filter.skipDirectory(relativeName(baseDir, dir))) {
+                skippedDirectoryCount.incrementAndGet();
+                return Collections.emptyList();
+            }
+            List<Path> files = new ArrayList<>();
+            List<Path> subDirs = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path p : stream) {
+                    if (Files.isDirectory(p, LinkOption.NOFOLLOW_LINKS)) {
+                        subDirs.add(p);
+                    } else if (Files.isRegularFile(p)) {
+                        files.add(p);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Collections.sort(files);
+            Collections.sort(subDirs);
+
+            List<DirectoryScanTask<R>> subTasks = new ArrayList<>(subDirs.size());
+            for (Path subDir : subDirs) {
+                subTasks.add(new DirectoryScanTask<>(baseDir, subDir, mapper));
+            }
+            // 先把子目录任务交给其他线程，再处理当前目录下的文件
+            for (DirectoryScanTask<R> subTask : subTasks) {
+                subTask.fork();
+            }
+
+            List<R> collector = new ArrayList<>();
+            for (Path file : files) {
+                if (filter.accept(relativeName(baseDir, file))) {
+                    addResource(fileResource(baseDir, file), collector, mapper);
+                } else {
+                    skippedCount.incrementAndGet();
+                }
+            }
+            for (DirectoryScanTask<R> subTask : subTasks) {
+                collector.addAll(subTask.join());
+            }
+            return collector;
+        }
+    }
+
+    /**
+     * 执行一组扫描任务，按任务顺序合并各自的结果
+     */
+    static class MergeTask<R> extends RecursiveTask<List<R>> {
+
+        private static final long serialVersionUID = 1L;
+
+        final List<ForkJoinTask<List<R>>> tasks;
+
+        MergeTask(List<ForkJoinTask<List<R>>> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected List<R> compute() {
+            List<R> collector = new ArrayList<>();
+            for (ForkJoinTask<List<R>> task : invokeAll(tasks)) {
+                collector.addAll(task.join());
+            }
+            return collector;
+        }
+    }
+
     String removeLeadingSlash(String s) {
         if (s.startsWith("/") || s.startsWith("\\")) {
             s = s.substring(1);
@@ -119,8 +433,14 @@ public class ResourceResolver {
         return s;
     }
 
-    Path jarUriToPath(String basePackagePath, URI uri) throws IOException {
-        return FileSystems.newFileSystem(uri, new HashMap<>()).getPath(basePackagePath);
+    Path jarUriToPath(URI uri) throws URISyntaxException {
+        // jar:file:/xxx/abc.jar!/com/autumn => file:/xxx/abc.jar
+        String part = uri.getRawSchemeSpecificPart();
+        int n = part.indexOf("!/");
+        if (n != -1) {
+            part = part.substring(0, n);
+        }
+        return Paths.get(new URI(part));
     }
 
     String removeTrailingSlash(String s) {
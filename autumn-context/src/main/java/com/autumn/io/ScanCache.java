@@ -0,0 +1,183 @@
+package com.autumn.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * 持久化的扫描结果缓存，每个 classpath 根路径（jar 包中的某个包、或者某个目录）保存一份扫描到的资源名。
+ * jar 包以 大小 + 修改时间 作为指纹；目录以其下所有子目录的修改时间作为指纹，
+ * 子目录中增删文件会改变子目录的修改时间，因此校验时只需要读取这些子目录的属性，不需要重新遍历。
+ *
+ * 文件格式（按行，制表符分隔）：
+ * <code>
+ * root  key  fingerprint
+ * d     相对根路径的子目录
+ * n     资源名
+ * </code>
+ * @author huangcanjie
+ */
+public class ScanCache {
+
+    static final Logger log = LoggerFactory.getLogger(ScanCache.class);
+
+    final Path file;
+    // 从文件中读取的缓存
+    final Map<String, Entry> loaded;
+    // 本次启动使用到的缓存，保存时只写入这部分，已经不存在的根路径会被淘汰
+    final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private ScanCache(Path file, Map<String, Entry> loaded) {
+        this.file = file;
+        this.loaded = loaded;
+    }
+
+    /**
+     * 读取缓存文件，文件不存在或者无法解析时返回空缓存
+     */
+    public static ScanCache load(Path file) {
+        Map<String, Entry> loaded = new HashMap<>();
+        if (Files.isRegularFile(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String key = null;
+                String fingerprint = null;
+                List<String> dirs = null;
+                List<String> names = null;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t", -1);
+                    if (parts[0].equals("root") && parts.length == 3) {
+                        if (key != null) {
+                            loaded.put(key, new Entry(fingerprint, dirs, names));
+                        }
+                        key = parts[1];
+                        fingerprint = parts[2];
+                        dirs = new ArrayList<>();
+                        names = new ArrayList<>();
+                    } else if (key != null && parts[0].equals("d") && parts.length == 2) {
+                        dirs.add(parts[1]);
+                    } else if (key != null && parts[0].equals("n") && parts.length == 2) {
+                        names.add(parts[1]);
+                    } else {
+                        throw new IOException("Invalid line: " + line);
+                    }
+                }
+                if (key != null) {
+                    loaded.put(key, new Entry(fingerprint, dirs, names));
+                }
+                log.debug("load scan cache {} with {} roots", file, loaded.size());
+            } catch (IOException e) {
+                log.warn("ignore invalid scan cache {}: {}", file, e.getMessage());
+                loaded.clear();
+            }
+        }
+        return new ScanCache(file, loaded);
+    }
+
+    /**
+     * 获取缓存，调用方负责校验指纹，校验通过或者重新扫描后需要调用 put
+     */
+    Entry get(String key) {
+        Entry entry = entries.get(key);
+        return entry != null ? entry : loaded.get(key);
+    }
+
+    Entry put(String key, Entry entry) {
+        entries.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * 写回缓存文件，先写临时文件再替换，写入失败不影响启动
+     */
+    public void save() {
+        if (!isModified()) {
+            log.debug("scan cache {} is up to date", file);
+            return;
+        }
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Entry> e : new TreeMap<>(entries).entrySet()) {
+                    Entry entry = e.getValue();
+                    writer.write("root\t" + e.getKey() + "\t" + entry.getFingerprint());
+                    writer.newLine();
+                    for (String d : entry.getDirs()) {
+                        writer.write("d\t" + d);
+                        writer.newLine();
+                    }
+                    for (String n : entry.getNames()) {
+                        writer.write("n\t" + n);
+                        writer.newLine();
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            log.debug("save scan cache {} with {} roots", file, entries.size());
+        } catch (IOException e) {
+            log.warn("failed to save scan cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    boolean isModified() {
+        if (!entries.keySet().equals(loaded.keySet())) {
+            return true;
+        }
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getValue() != loaded.get(e.getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String jarFingerprint(Path jarPath) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(jarPath, BasicFileAttributes.class);
+        return attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * 计算目录的指纹，dirs 为相对 root 的子目录（包括 root 本身），某个子目录不存在时返回 null
+     */
+    static String directoryFingerprint(Path root, List<String> dirs) {
+        CRC32 crc = new CRC32();
+        try {
+            for (String d : dirs) {
+                long lastModified = Files.getLastModifiedTime(root.resolve(d)).toMillis();
+                crc.update((d + "=" + lastModified + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return dirs.size() + ":" + Long.toHexString(crc.getValue());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class Entry {
+        private final String fingerprint;
+        private final List<String> dirs;
+        private final List<String> names;
+    }
+}
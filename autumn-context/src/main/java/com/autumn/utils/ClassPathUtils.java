@@ -1,13 +1,17 @@
 package com.autumn.utils;
 
 import com.autumn.io.InputStreamCallback;
+import com.autumn.io.Resource;
 
-import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 
 public class ClassPathUtils {
 
@@ -27,35 +31,37 @@ public class ClassPathUtils {
     }
 
     public static String readString(String path) {
-        return readInputStream(path, (input) -> {
-            byte[] data = readAllBytes(input);
-            return new String(data, StandardCharsets.UTF_8);
-        });
+        try {
+            // 直接从映射或者一次性读入的缓冲区解码，不再经过中间的字节数组
+            ByteBuffer buffer = getResource(path).asByteBuffer();
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    static byte[] readAllBytes(InputStream inputStream) throws IOException {
-        final int bufLen = 1024;
-        byte[] buf = new byte[bufLen];
-        int readLen;
-        IOException exception = null;
-
+    /**
+     * 获取 classpath 下的资源，不存在时抛出异常
+     */
+    public static Resource getResource(String path) {
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        URL url = getContextClassLoader().getResource(path);
         try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            while ((readLen = inputStream.read(buf, 0, bufLen)) != -1)
-                outputStream.write(buf, 0, readLen);
-            return outputStream.toByteArray();
+            if (url == null) {
+                throw new FileNotFoundException("File not found in classpath: " + path);
+            }
+            if ("file".equals(url.getProtocol())) {
+                return new Resource("file:" + Paths.get(url.toURI()), path);
+            }
+            // jar:file:/xxx/abc.jar!/application.yml => jar:file:/xxx/abc.jar!
+            String s = url.toString();
+            return new Resource(s.substring(0, s.length() - path.length() - 1), path);
         } catch (IOException e) {
-            exception = e;
-            throw e;
-        } finally {
-            if (exception == null)
-                inputStream.close();
-            else
-                try {
-                    inputStream.close();
-                } catch (IOException e) {
-                    exception.addSuppressed(e);
-                }
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
         }
     }
 
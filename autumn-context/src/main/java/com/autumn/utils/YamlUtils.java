@@ -1,5 +1,6 @@
 package com.autumn.utils;
 
+import com.autumn.io.Resource;
 import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
@@ -7,6 +8,10 @@ import org.yaml.snakeyaml.constructor.Constructor;
 import org.yaml.snakeyaml.representer.Representer;
 import org.yaml.snakeyaml.resolver.Resolver;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,9 +27,13 @@ public class YamlUtils {
         Representer representer = new Representer(dumperOptions);
         NoImplicitResolver resolver = new NoImplicitResolver();
         Yaml yaml = new Yaml(new Constructor(loaderOptions), representer, dumperOptions, loaderOptions, resolver);
-        return ClassPathUtils.readInputStream(path, (input) -> {
+        // 从资源通道直接读取，snakeyaml 自行识别编码
+        Resource resource = ClassPathUtils.getResource(path);
+        try (InputStream input = Channels.newInputStream(resource.openChannel())) {
             return (Map<String, Object>) yaml.load(input);
-        });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     public static Map<String, Object> loadYamlAsPlainMap(String path) {
@@ -1,5 +1,8 @@
 package com.autumn.annotation;
 
+import com.autumn.jdbc.tx.Isolation;
+import com.autumn.jdbc.tx.Propagation;
+
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Inherited;
@@ -8,10 +11,33 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 @Inherited
-@Target(ElementType.TYPE)
+@Target({ElementType.TYPE, ElementType.METHOD})
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 public @interface Transactional {
 
     String value() default "platformTransactionManager";
+
+    /**
+     * 标注在类上时，只有匹配该切点表达式的方法开启事务（不包括重写的 toString、equals、hashCode），
+     * 方法上的 @Transactional 覆盖类上的属性
+     */
+    String pointcut() default "";
+
+    Propagation propagation() default Propagation.REQUIRED;
+
+    /**
+     * 只在开启新事务时生效
+     */
+    Isolation isolation() default Isolation.DEFAULT;
+
+    /**
+     * 超时秒数，小于等于 0 表示不超时。只在开启新事务时生效，事务中的语句以剩余时间作为查询超时
+     */
+    int timeout() default -1;
+
+    /**
+     * 只读事务，开启新事务时对连接调用 setReadOnly(true)，驱动和数据库可以据此优化
+     */
+    boolean readOnly() default false;
 }
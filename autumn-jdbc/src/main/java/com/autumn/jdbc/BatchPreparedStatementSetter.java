@@ -0,0 +1,21 @@
+package com.autumn.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * 为批量执行的每一行设置参数
+ * @author huangcanjie
+ */
+public interface BatchPreparedStatementSetter {
+
+    /**
+     * 设置第 i 行（从 0 开始）的参数
+     */
+    void setValues(PreparedStatement ps, int i) throws SQLException;
+
+    /**
+     * 总行数
+     */
+    int getBatchSize();
+}
@@ -1,51 +1,98 @@
 package com.autumn.jdbc;
 
 import com.autumn.exception.DataAccessException;
+import com.autumn.jdbc.ColumnMappers.ColumnMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
+ * 把一行结果映射为 Bean，列名（label）与 setter 或 public 字段同名时写入。
+ * <p>
+ * 每个类只解析一次，由 of 缓存。每个属性按类型确定读取方式：基本类型以 getInt、getLong 等读取，不装箱，
+ * 其他类型由 ConverterRegistry 中的 ColumnReader 读取；setter 和构造方法通过 LambdaMetafactory 生成直接调用的实现，不使用反射（框架的类加载器看不到的类除外）。
+ * 每个 ResultSet 在第一行时按列的下标确定写入的属性，之后的行直接按下标读取和写入
  * @author huangcanjie
  */
 public class BeanRowMapper<T> implements RowMapper<T> {
 
+    static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    static final ClassValue<BeanRowMapper<?>> MAPPERS = new ClassValue<BeanRowMapper<?>>() {
+        @Override
+        protected BeanRowMapper<?> computeValue(Class<?> type) {
+            return new BeanRowMapper<>(type);
+        }
+    };
+
     final Logger logger = LoggerFactory.getLogger(getClass());
 
     Class<T> clazz;
-    Constructor<T> constructor;
-    Map<String, Field> fields = new HashMap<>();
-    Map<String, Method> methods = new HashMap<>();
+    Supplier<T> factory;
+    // 属性名 -> 读取并写入的方式，setter 优先于字段
+    Map<String, ColumnMapper> mappers = new HashMap<>();
+
+    // 每个线程最近一个 ResultSet 的映射计划
+    final ThreadLocal<Plan> plans = new ThreadLocal<>();
+
+    /**
+     * 返回缓存的 BeanRowMapper，每个类只解析一次
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanRowMapper<T> of(Class<T> clazz) {
+        return (BeanRowMapper<T>) MAPPERS.get(clazz);
+    }
 
     public BeanRowMapper(Class<T> clazz) {
+        this(clazz, ConverterRegistry.getDefault());
+    }
+
+    /**
+     * @param registry  引用类型属性的读取方式，创建后注册的 ColumnReader 不会生效
+     */
+    public BeanRowMapper(Class<T> clazz, ConverterRegistry registry) {
         this.clazz = clazz;
+        Constructor<T> constructor;
         try {
-            this.constructor = clazz.getConstructor();
+            constructor = clazz.getConstructor();
         } catch (NoSuchMethodException e) {
             throw new DataAccessException(String.format("No public default constructor found for class %s when build BeanRowMapper.", clazz.getName()), e);
         }
+        this.factory = createFactory(constructor);
         for (Field field : clazz.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+                continue;
+            }
             String name = field.getName();
-            this.fields.put(name, field);
+            this.mappers.put(name, ColumnMappers.forField(field, registry));
             logger.debug("Add row mapping: {} to field {}", name, name);
         }
         for (Method method : clazz.getMethods()) {
             Parameter[] parameters = method.getParameters();
-            if (parameters.length == 1) {
+            if (parameters.length == 1 && !Modifier.isStatic(method.getModifiers())) {
                 String name = method.getName();
                 if (name.length() >= 4 && name.startsWith("set")) {
                     String prop = Character.toLowerCase(name.charAt(3)) + name.substring(4);
-                    this.methods.put(prop, method);
+                    this.mappers.put(prop, ColumnMappers.forSetter(method, registry));
                     logger.debug("Add row mapping: {} to {}({})", prop, name, parameters[0].getType().getSimpleName());
                 }
             }
@@ -54,26 +101,95 @@ public class BeanRowMapper<T> implements RowMapper<T> {
 
     @Override
     public T mapRow(ResultSet rs, int rowNum) throws SQLException {
-        T bean;
-        try {
-            bean = this.constructor.newInstance();
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            for (int i = 1; i <= columnCount; i++) {
-                String label = metaData.getColumnLabel(i);
-                Method method = this.methods.get(label);
-                if (method != null) {
-                    method.invoke(bean, rs.getObject(label));
-                } else {
-                    Field field = this.fields.get(label);
-                    if (field != null) {
-                        field.set(bean, rs.getObject(label));
-                    }
-                }
-            }
-        } catch (InstantiationException | InvocationTargetException | IllegalAccessException e) {
-            throw new DataAccessException(String.format("Could not map result set to class %s", this.clazz.getName()), e);
+        Plan plan = getPlan(rs);
+        T bean = this.factory.get();
+        int[] columns = plan.columns;
+        ColumnMapper[] columnMappers = plan.mappers;
+        for (int i = 0; i < columns.length; i++) {
+            columnMappers[i].map(rs, columns[i], bean);
         }
         return bean;
     }
+
+    /**
+     * 同一个 ResultSet 复用第一行时确定的映射计划
+     */
+    Plan getPlan(ResultSet rs) throws SQLException {
+        Plan plan = plans.get();
+        if (plan == null || plan.resultSet.get() != rs) {
+            plan = createPlan(rs);
+            plans.set(plan);
+        }
+        return plan;
+    }
+
+    Plan createPlan(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        List<Integer> columns = new ArrayList<>(columnCount);
+        List<ColumnMapper> columnMappers = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            ColumnMapper mapper = this.mappers.get(metaData.getColumnLabel(i));
+            if (mapper != null) {
+                columns.add(i);
+                columnMappers.add(mapper);
+            }
+        }
+        return new Plan(rs, columns.stream().mapToInt(Integer::intValue).toArray(), columnMappers.toArray(new ColumnMapper[0]));
+    }
+
+    @SuppressWarnings("unchecked")
+    Supplier<T> createFactory(Constructor<T> constructor) {
+        if (isVisible(clazz)) {
+            try {
+                MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get", MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class), handle, MethodType.methodType(clazz));
+                return (Supplier<T>) site.getTarget().invoke();
+            } catch (Throwable e) {
+                logger.debug("Use reflection to create {}: {}", clazz.getName(), e.toString());
+            }
+        }
+        // 类不可访问，或者由 LOOKUP 看不到的类加载器加载时使用反射
+        return () -> {
+            try {
+                return constructor.newInstance();
+            } catch (ReflectiveOperationException ex) {
+                throw new DataAccessException(String.format("Could not create instance of class %s", clazz.getName()), ex);
+            }
+        };
+    }
+
+    /**
+     * LambdaMetafactory 生成的类由 LOOKUP 的类加载器加载，只有从这个类加载器能解析到同一个类时才能使用，
+     * 否则生成的类链接失败，或者让框架的类加载器引用应用的类，阻止它被卸载
+     */
+    static boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, LOOKUP.lookupClass().getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * 一个 ResultSet 的映射计划：需要读取的列下标和对应的读写方式。只弱引用 ResultSet，不阻止它被回收
+     */
+    static final class Plan {
+        final WeakReference<ResultSet> resultSet;
+        final int[] columns;
+        final ColumnMapper[] mappers;
+
+        Plan(ResultSet resultSet, int[] columns, ColumnMapper[] mappers) {
+            this.resultSet = new WeakReference<>(resultSet);
+            this.columns = columns;
+            this.mappers = mappers;
+        }
+    }
 }
@@ -0,0 +1,306 @@
+package com.autumn.jdbc;
+
+import com.autumn.exception.DataAccessException;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 按属性类型生成读取一列并写入 Bean 的 ColumnMapper。
+ * 基本类型以 getInt、getLong 等读取，wasNull 为 true 时保留默认值，读写过程不装箱；
+ * 其他类型由 ConverterRegistry 中的 ColumnReader 读取。setter 通过 LambdaMetafactory 直接调用
+ * @author huangcanjie
+ */
+class ColumnMappers {
+
+    static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * 读取 ResultSet 的一列写入 Bean
+     */
+    @FunctionalInterface
+    interface ColumnMapper {
+        void map(ResultSet rs, int column, Object bean) throws SQLException;
+    }
+
+    @FunctionalInterface
+    interface ObjectSetter {
+        void accept(Object bean, Object value);
+    }
+
+    @FunctionalInterface
+    interface IntSetter {
+        void accept(Object bean, int value);
+    }
+
+    @FunctionalInterface
+    interface LongSetter {
+        void accept(Object bean, long value);
+    }
+
+    @FunctionalInterface
+    interface DoubleSetter {
+        void accept(Object bean, double value);
+    }
+
+    @FunctionalInterface
+    interface FloatSetter {
+        void accept(Object bean, float value);
+    }
+
+    @FunctionalInterface
+    interface ShortSetter {
+        void accept(Object bean, short value);
+    }
+
+    @FunctionalInterface
+    interface ByteSetter {
+        void accept(Object bean, byte value);
+    }
+
+    @FunctionalInterface
+    interface BooleanSetter {
+        void accept(Object bean, boolean value);
+    }
+
+    @FunctionalInterface
+    interface CharSetter {
+        void accept(Object bean, char value);
+    }
+
+    static ColumnMapper forSetter(Method method, ConverterRegistry registry) {
+        Class<?> type = method.getParameterTypes()[0];
+        Class<?> declaringClass = method.getDeclaringClass();
+        MethodHandle handle = null;
+        if (BeanRowMapper.isVisible(declaringClass) && BeanRowMapper.isVisible(type)) {
+            try {
+                handle = LOOKUP.unreflect(method);
+            } catch (IllegalAccessException ignored) {
+            }
+        }
+        if (handle == null) {
+            // 类不可访问，或者由 LOOKUP 看不到的类加载器加载时使用反射
+            return forObject(type, (bean, value) -> {
+                try {
+                    method.invoke(bean, value);
+                } catch (ReflectiveOperationException ex) {
+                    throw new DataAccessException(String.format("Could not call %s", method), ex);
+                }
+            }, registry);
+        }
+        if (type == int.class) {
+            return forInt(generate(IntSetter.class, handle, declaringClass, type));
+        } else if (type == long.class) {
+            return forLong(generate(LongSetter.class, handle, declaringClass, type));
+        } else if (type == double.class) {
+            return forDouble(generate(DoubleSetter.class, handle, declaringClass, type));
+        } else if (type == float.class) {
+            return forFloat(generate(FloatSetter.class, handle, declaringClass, type));
+        } else if (type == short.class) {
+            return forShort(generate(ShortSetter.class, handle, declaringClass, type));
+        } else if (type == byte.class) {
+            return forByte(generate(ByteSetter.class, handle, declaringClass, type));
+        } else if (type == boolean.class) {
+            return forBoolean(generate(BooleanSetter.class, handle, declaringClass, type));
+        } else if (type == char.class) {
+            return forChar(generate(CharSetter.class, handle, declaringClass, type));
+        }
+        return forObject(type, generate(ObjectSetter.class, handle, declaringClass, type), registry);
+    }
+
+    static ColumnMapper forField(Field field, ConverterRegistry registry) {
+        Class<?> type = field.getType();
+        // public 字段通过 Field 的基本类型方法写入，同样不装箱
+        if (type == int.class) {
+            return forInt((bean, value) -> {
+                try {
+                    field.setInt(bean, value);
+                } catch (IllegalAccessException e) {
+                    throw fieldAccessError(field, e);
+                }
+            });
+        } else if (type == long.class) {
+            return forLong((bean, value) -> {
+                try {
+                    field.setLong(bean, value);
+                } catch (IllegalAccessException e) {
+                    throw fieldAccessError(field, e);
+                }
+            });
+        } else if (type == double.class) {
+            return forDouble((bean, value) -> {
+                try {
+                    field.setDouble(bean, value);
+                } catch (IllegalAccessException e) {
+                    throw fieldAccessError(field, e);
+                }
+            });
+        } else if (type == float.class) {
+            return forFloat((bean, value) -> {
+                try {
+                    field.setFloat(bean, value);
+                } catch (IllegalAccessException e) {
+                    throw fieldAccessError(field, e);
+                }
+            });
+        } else if (type == short.class) {
+            return forShort((bean, value) -> {
+                try {
+                    field.setShort(bean, value);
+                } catch (IllegalAccessException e) {
+                    throw fieldAccessError(field, e);
+                }
+            });
+        } else if (type == byte.class) {
+            return forByte((bean, value) -> {
+                try {
+                    field.setByte(bean, value);
+                } catch (IllegalAccessException e) {
+                    throw fieldAccessError(field, e);
+                }
+            });
+        } else if (type == boolean.class) {
+            return forBoolean((bean, value) -> {
+                try {
+                    field.setBoolean(bean, value);
+                } catch (IllegalAccessException e) {
+                    throw fieldAccessError(field, e);
+                }
+            });
+        } else if (type == char.class) {
+            return forChar((bean, value) -> {
+                try {
+                    field.setChar(bean, value);
+                } catch (IllegalAccessException e) {
+                    throw fieldAccessError(field, e);
+                }
+            });
+        }
+        return forObject(type, (bean, value) -> {
+            try {
+                field.set(bean, value);
+            } catch (IllegalAccessException e) {
+                throw fieldAccessError(field, e);
+            }
+        }, registry);
+    }
+
+    static ColumnMapper forInt(IntSetter setter) {
+        return (rs, column, bean) -> {
+            int value = rs.getInt(column);
+            if (!rs.wasNull()) {
+                setter.accept(bean, value);
+            }
+        };
+    }
+
+    static ColumnMapper forLong(LongSetter setter) {
+        return (rs, column, bean) -> {
+            long value = rs.getLong(column);
+            if (!rs.wasNull()) {
+                setter.accept(bean, value);
+            }
+        };
+    }
+
+    static ColumnMapper forDouble(DoubleSetter setter) {
+        return (rs, column, bean) -> {
+            double value = rs.getDouble(column);
+            if (!rs.wasNull()) {
+                setter.accept(bean, value);
+            }
+        };
+    }
+
+    static ColumnMapper forFloat(FloatSetter setter) {
+        return (rs, column, bean) -> {
+            float value = rs.getFloat(column);
+            if (!rs.wasNull()) {
+                setter.accept(bean, value);
+            }
+        };
+    }
+
+    static ColumnMapper forShort(ShortSetter setter) {
+        return (rs, column, bean) -> {
+            short value = rs.getShort(column);
+            if (!rs.wasNull()) {
+                setter.accept(bean, value);
+            }
+        };
+    }
+
+    static ColumnMapper forByte(ByteSetter setter) {
+        return (rs, column, bean) -> {
+            byte value = rs.getByte(column);
+            if (!rs.wasNull()) {
+                setter.accept(bean, value);
+            }
+        };
+    }
+
+    static ColumnMapper forBoolean(BooleanSetter setter) {
+        return (rs, column, bean) -> {
+            boolean value = rs.getBoolean(column);
+            if (!rs.wasNull()) {
+                setter.accept(bean, value);
+            }
+        };
+    }
+
+    /**
+     * 字符以 getString 读取，取第一个字符，null 或空字符串时保留默认值
+     */
+    static ColumnMapper forChar(CharSetter setter) {
+        return (rs, column, bean) -> {
+            String value = rs.getString(column);
+            if (value != null && !value.isEmpty()) {
+                setter.accept(bean, value.charAt(0));
+            }
+        };
+    }
+
+    /**
+     * 引用类型（以及反射写入的基本类型）由 ColumnReader 读取，基本类型的属性不写入 null
+     */
+    static ColumnMapper forObject(Class<?> type, ObjectSetter setter, ConverterRegistry registry) {
+        boolean primitive = type.isPrimitive();
+        Class<?> readType = primitive ? MethodType.methodType(type).wrap().returnType() : type;
+        ColumnReader<?> reader = registry.getReader(readType);
+        return (rs, column, bean) -> {
+            Object value = reader.read(rs, column);
+            if (value != null || !primitive) {
+                setter.accept(bean, value);
+            }
+        };
+    }
+
+    /**
+     * 生成以 invokevirtual 调用 setter 的实现，setter 的返回值被忽略。
+     * 没有对应 Setter 接口的基本类型使用 ObjectSetter，由生成的实现拆箱
+     */
+    static <S> S generate(Class<S> setterInterface, MethodHandle handle, Class<?> declaringClass, Class<?> type) {
+        boolean boxed = setterInterface == ObjectSetter.class;
+        Class<?> samType = boxed ? Object.class : type;
+        Class<?> instantiatedType = boxed ? MethodType.methodType(type).wrap().returnType() : type;
+        try {
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(setterInterface),
+                    MethodType.methodType(void.class, Object.class, samType), handle,
+                    MethodType.methodType(void.class, declaringClass, instantiatedType));
+            return setterInterface.cast(site.getTarget().invoke());
+        } catch (Throwable e) {
+            throw new DataAccessException(String.format("Could not generate setter for %s", handle), e);
+        }
+    }
+
+    static DataAccessException fieldAccessError(Field field, IllegalAccessException e) {
+        return new DataAccessException(String.format("Could not access field %s of class %s", field.getName(), field.getDeclaringClass().getName()), e);
+    }
+}
@@ -0,0 +1,15 @@
+package com.autumn.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 按目标类型读取一列，SQL NULL 返回 null。自定义类型的读取方式注册到 ConverterRegistry
+ * @param <T>
+ * @author huangcanjie
+ */
+@FunctionalInterface
+public interface ColumnReader<T> {
+
+    T read(ResultSet rs, int column) throws SQLException;
+}
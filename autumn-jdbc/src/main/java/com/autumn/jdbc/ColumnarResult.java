@@ -0,0 +1,257 @@
+package com.autumn.jdbc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * 按列保存的查询结果。整数列（包括 scale 为 0 的 DECIMAL）以 long 保存，浮点数和其他 DECIMAL 以 double 保存，
+ * 每行只占 8 字节，另以位图记录 null；其他类型的列以对象保存。数值列可以保存在堆外。
+ * 行和列的下标都从 0 开始
+ * @author huangcanjie
+ */
+public class ColumnarResult {
+
+    final String[] columnNames;
+    final Column[] columns;
+    final int rowCount;
+
+    ColumnarResult(String[] columnNames, Column[] columns, int rowCount) {
+        this.columnNames = columnNames;
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    /**
+     * @return  列名（label）对应的下标，不存在时返回 -1
+     */
+    public int findColumn(String columnName) {
+        for (int i = 0; i < columnNames.length; i++) {
+            if (columnNames[i].equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isNull(int row, int column) {
+        checkRow(row);
+        return columns[column].isNull(row);
+    }
+
+    /**
+     * null 返回 0
+     */
+    public long getLong(int row, int column) {
+        checkRow(row);
+        return columns[column].getLong(row);
+    }
+
+    public int getInt(int row, int column) {
+        return (int) getLong(row, column);
+    }
+
+    /**
+     * null 返回 0
+     */
+    public double getDouble(int row, int column) {
+        checkRow(row);
+        return columns[column].getDouble(row);
+    }
+
+    public Object getObject(int row, int column) {
+        checkRow(row);
+        return columns[column].getObject(row);
+    }
+
+    /**
+     * 复制一列为 long 数组，null 为 0
+     */
+    public long[] getLongColumn(int column) {
+        Column c = columns[column];
+        long[] values = new long[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = c.getLong(i);
+        }
+        return values;
+    }
+
+    /**
+     * 复制一列为 double 数组，null 为 0
+     */
+    public double[] getDoubleColumn(int column) {
+        Column c = columns[column];
+        double[] values = new double[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = c.getDouble(i);
+        }
+        return values;
+    }
+
+    void checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", row count: " + rowCount);
+        }
+    }
+
+    /**
+     * 一列的数据，按需扩容
+     */
+    abstract static class Column {
+
+        // null 位图
+        long[] nulls = new long[1];
+
+        void setNull(int row) {
+            int word = row >>> 6;
+            if (word >= nulls.length) {
+                nulls = Arrays.copyOf(nulls, Math.max(word + 1, nulls.length * 2));
+            }
+            nulls[word] |= 1L << row;
+        }
+
+        boolean isNull(int row) {
+            int word = row >>> 6;
+            return word < nulls.length && (nulls[word] & (1L << row)) != 0;
+        }
+
+        abstract long getLong(int row);
+
+        abstract double getDouble(int row);
+
+        abstract Object getObject(int row);
+    }
+
+    /**
+     * 8 字节一行的数值，保存在 long 数组或者堆外的 ByteBuffer 中
+     */
+    abstract static class PrimitiveColumn extends Column {
+        long[] values;
+        ByteBuffer buffer;
+
+        PrimitiveColumn(int capacity, boolean offHeap) {
+            if (offHeap) {
+                buffer = ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder());
+            } else {
+                values = new long[capacity];
+            }
+        }
+
+        void setBits(int row, long bits) {
+            if (buffer != null) {
+                if (row * 8 >= buffer.capacity()) {
+                    ByteBuffer grown = ByteBuffer.allocateDirect(buffer.capacity() * 2).order(ByteOrder.nativeOrder());
+                    buffer.clear();
+                    grown.put(buffer);
+                    buffer = grown;
+                }
+                buffer.putLong(row * 8, bits);
+            } else {
+                if (row >= values.length) {
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+                values[row] = bits;
+            }
+        }
+
+        long getBits(int row) {
+            return buffer != null ? buffer.getLong(row * 8) : values[row];
+        }
+    }
+
+    static final class LongColumn extends PrimitiveColumn {
+
+        LongColumn(int capacity, boolean offHeap) {
+            super(capacity, offHeap);
+        }
+
+        void set(int row, long value) {
+            setBits(row, value);
+        }
+
+        @Override
+        long getLong(int row) {
+            return getBits(row);
+        }
+
+        @Override
+        double getDouble(int row) {
+            return getBits(row);
+        }
+
+        @Override
+        Object getObject(int row) {
+            return isNull(row) ? null : getBits(row);
+        }
+    }
+
+    static final class DoubleColumn extends PrimitiveColumn {
+
+        DoubleColumn(int capacity, boolean offHeap) {
+            super(capacity, offHeap);
+        }
+
+        void set(int row, double value) {
+            setBits(row, Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        long getLong(int row) {
+            return (long) getDouble(row);
+        }
+
+        @Override
+        double getDouble(int row) {
+            return Double.longBitsToDouble(getBits(row));
+        }
+
+        @Override
+        Object getObject(int row) {
+            return isNull(row) ? null : getDouble(row);
+        }
+    }
+
+    static final class ObjectColumn extends Column {
+        Object[] values;
+
+        ObjectColumn(int capacity) {
+            values = new Object[capacity];
+        }
+
+        void set(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[row] = value;
+        }
+
+        @Override
+        long getLong(int row) {
+            Object value = values[row];
+            return value instanceof Number ? ((Number) value).longValue() : 0;
+        }
+
+        @Override
+        double getDouble(int row) {
+            Object value = values[row];
+            return value instanceof Number ? ((Number) value).doubleValue() : 0;
+        }
+
+        @Override
+        Object getObject(int row) {
+            return values[row];
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.autumn.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * 把整个结果集读取为 ColumnarResult，根据列的 JDBC 类型确定保存方式
+ * @author huangcanjie
+ */
+public class ColumnarResultExtractor implements ResultSetExtractor<ColumnarResult> {
+
+    static final int INITIAL_CAPACITY = 1024;
+
+    final boolean offHeap;
+
+    public ColumnarResultExtractor() {
+        this(false);
+    }
+
+    /**
+     * @param offHeap  数值列是否保存在堆外（直接内存）
+     */
+    public ColumnarResultExtractor(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    @Override
+    public ColumnarResult extractData(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] names = new String[columnCount];
+        ColumnarResult.Column[] columns = new ColumnarResult.Column[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = metaData.getColumnLabel(i + 1);
+            columns[i] = createColumn(metaData, i + 1);
+        }
+        int row = 0;
+        while (rs.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                ColumnarResult.Column column = columns[i];
+                int index = i + 1;
+                if (column instanceof ColumnarResult.LongColumn) {
+                    long value = rs.getLong(index);
+                    ((ColumnarResult.LongColumn) column).set(row, value);
+                    if (value == 0 && rs.wasNull()) {
+                        column.setNull(row);
+                    }
+                } else if (column instanceof ColumnarResult.DoubleColumn) {
+                    double value = rs.getDouble(index);
+                    ((ColumnarResult.DoubleColumn) column).set(row, value);
+                    if (value == 0 && rs.wasNull()) {
+                        column.setNull(row);
+                    }
+                } else {
+                    Object value = rs.getObject(index);
+                    ((ColumnarResult.ObjectColumn) column).set(row, value);
+                    if (value == null) {
+                        column.setNull(row);
+                    }
+                }
+            }
+            row++;
+        }
+        return new ColumnarResult(names, columns, row);
+    }
+
+    ColumnarResult.Column createColumn(ResultSetMetaData metaData, int column) throws SQLException {
+        switch (metaData.getColumnType(column)) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return new ColumnarResult.LongColumn(INITIAL_CAPACITY, offHeap);
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                // 整数的 DECIMAL 在 long 的范围内时不丢失精度
+                if (metaData.getScale(column) == 0 && metaData.getPrecision(column) <= 18) {
+                    return new ColumnarResult.LongColumn(INITIAL_CAPACITY, offHeap);
+                }
+                return new ColumnarResult.DoubleColumn(INITIAL_CAPACITY, offHeap);
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new ColumnarResult.DoubleColumn(INITIAL_CAPACITY, offHeap);
+            default:
+                return new ColumnarResult.ObjectColumn(INITIAL_CAPACITY);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.autumn.jdbc;
+
+import com.autumn.exception.DataAccessException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 目标类型 -> ColumnReader。内置了常用的 JDBC 类型、java.time 类型和枚举（按名称，数字按序号），
+ * 其他类型读取 getObject 的结果，类型不符时需要注册自定义的 ColumnReader。
+ * BeanRowMapper 在创建时确定每个属性的读取方式，自定义的 ColumnReader 需要在第一次查询之前注册
+ * @author huangcanjie
+ */
+public class ConverterRegistry {
+
+    static final ConverterRegistry DEFAULT = new ConverterRegistry();
+
+    // 枚举的读取方式随枚举类缓存，不放入 readers，注册表不会引用应用类加载器中的类
+    static final ClassValue<ColumnReader<?>> ENUM_READERS = new ClassValue<ColumnReader<?>>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected ColumnReader<?> computeValue(Class<?> type) {
+            return enumReader((Class) type);
+        }
+    };
+
+    final Map<Class<?>, ColumnReader<?>> readers = new ConcurrentHashMap<>();
+
+    /**
+     * BeanRowMapper.of 使用的注册表
+     */
+    public static ConverterRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public ConverterRegistry() {
+        register(String.class, ResultSet::getString);
+        register(Integer.class, (rs, column) -> {
+            int value = rs.getInt(column);
+            return rs.wasNull() ? null : value;
+        });
+        register(Long.class, (rs, column) -> {
+            long value = rs.getLong(column);
+            return rs.wasNull() ? null : value;
+        });
+        register(Double.class, (rs, column) -> {
+            double value = rs.getDouble(column);
+            return rs.wasNull() ? null : value;
+        });
+        register(Float.class, (rs, column) -> {
+            float value = rs.getFloat(column);
+            return rs.wasNull() ? null : value;
+        });
+        register(Short.class, (rs, column) -> {
+            short value = rs.getShort(column);
+            return rs.wasNull() ? null : value;
+        });
+        register(Byte.class, (rs, column) -> {
+            byte value = rs.getByte(column);
+            return rs.wasNull() ? null : value;
+        });
+        register(Boolean.class, (rs, column) -> {
+            boolean value = rs.getBoolean(column);
+            return rs.wasNull() ? null : value;
+        });
+        register(Character.class, (rs, column) -> {
+            String value = rs.getString(column);
+            return value == null || value.isEmpty() ? null : value.charAt(0);
+        });
+        register(BigDecimal.class, ResultSet::getBigDecimal);
+        register(BigInteger.class, (rs, column) -> {
+            BigDecimal value = rs.getBigDecimal(column);
+            return value == null ? null : value.toBigInteger();
+        });
+        register(byte[].class, ResultSet::getBytes);
+        register(Timestamp.class, ResultSet::getTimestamp);
+        register(Date.class, ResultSet::getDate);
+        register(Time.class, ResultSet::getTime);
+        register(java.util.Date.class, ResultSet::getTimestamp);
+        register(LocalDateTime.class, (rs, column) -> {
+            Timestamp value = rs.getTimestamp(column);
+            return value == null ? null : value.toLocalDateTime();
+        });
+        register(LocalDate.class, (rs, column) -> {
+            Date value = rs.getDate(column);
+            return value == null ? null : value.toLocalDate();
+        });
+        register(LocalTime.class, (rs, column) -> {
+            Time value = rs.getTime(column);
+            return value == null ? null : value.toLocalTime();
+        });
+        register(Instant.class, (rs, column) -> {
+            Timestamp value = rs.getTimestamp(column);
+            return value == null ? null : value.toInstant();
+        });
+    }
+
+    /**
+     * 注册或替换目标类型的读取方式
+     */
+    public <T> void register(Class<T> type, ColumnReader<? extends T> reader) {
+        readers.put(type, reader);
+    }
+
+    /**
+     * 目标类型的读取方式，没有注册时读取 getObject 并检查类型
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ColumnReader<T> getReader(Class<T> type) {
+        ColumnReader<?> reader = readers.get(type);
+        if (reader == null) {
+            reader = type.isEnum() ? ENUM_READERS.get(type) : objectReader(type);
+        }
+        return (ColumnReader<T>) reader;
+    }
+
+    static <E extends Enum<E>> ColumnReader<E> enumReader(Class<E> type) {
+        E[] constants = type.getEnumConstants();
+        Map<String, E> byName = new HashMap<>();
+        for (E constant : constants) {
+            byName.put(constant.name(), constant);
+        }
+        return (rs, column) -> {
+            String value = rs.getString(column);
+            if (value == null) {
+                return null;
+            }
+            E constant = byName.get(value);
+            if (constant != null) {
+                return constant;
+            }
+            // 数字按序号读取
+            try {
+                return constants[Integer.parseInt(value)];
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new DataAccessException(String.format("No enum constant %s.%s", type.getName(), value), e);
+            }
+        };
+    }
+
+    static <T> ColumnReader<T> objectReader(Class<T> type) {
+        return (rs, column) -> {
+            Object value = rs.getObject(column);
+            if (value == null || type.isInstance(value)) {
+                return type.cast(value);
+            }
+            throw new DataAccessException(String.format("Cannot convert column %d of type %s to %s, register a ColumnReader for it.",
+                    column, value.getClass().getName(), type.getName()));
+        };
+    }
+}
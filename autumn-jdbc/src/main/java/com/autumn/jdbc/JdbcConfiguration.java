@@ -4,6 +4,10 @@ import com.autumn.annotation.Autowired;
 import com.autumn.annotation.Bean;
 import com.autumn.annotation.Configuration;
 import com.autumn.annotation.Value;
+import com.autumn.jdbc.cache.StatementCachingDataSource;
+import com.autumn.jdbc.named.NamedParameterJdbcTemplate;
+import com.autumn.jdbc.routing.LoadBalance;
+import com.autumn.jdbc.routing.RoutingDataSource;
 import com.autumn.jdbc.tx.DataSourceTransactionManager;
 import com.autumn.jdbc.tx.PlatformTransactionManager;
 import com.autumn.jdbc.tx.TransactionalBeanPostProcessor;
@@ -11,6 +15,9 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * @author huangcanjie
@@ -26,8 +33,41 @@ public class JdbcConfiguration {
         @Value("${autumn.datasource.driver-class-name:}") String driver,
         @Value("${autumn.datasource.maximum-pool-size:20}") int maximumPoolSize,
         @Value("${autumn.datasource.minimum-pool-size:1}") int minimumPoolSize,
-        @Value("${autumn.datasource.connection-timeout:30000}") int connTimeout
+        @Value("${autumn.datasource.connection-timeout:30000}") int connTimeout,
+        @Value("${autumn.datasource.statement-cache-size:0}") int statementCacheSize,
+        // 从库地址，以逗号分隔，为空时不做读写分离
+        @Value("${autumn.datasource.replica-urls:}") String replicaUrls,
+        @Value("${autumn.datasource.replica-weights:}") String replicaWeights,
+        @Value("${autumn.datasource.load-balance:LEAST_OUTSTANDING}") String loadBalance,
+        @Value("${autumn.datasource.replica-lag-query:}") String replicaLagQuery,
+        @Value("${autumn.datasource.replica-max-lag:0}") long replicaMaxLag,
+        @Value("${autumn.datasource.replica-check-interval:5000}") long replicaCheckInterval
     ) {
+        HikariDataSource primaryPool = createPool(url, username, password, driver, maximumPoolSize, minimumPoolSize, connTimeout);
+        DataSource primary = withStatementCache(primaryPool, statementCacheSize);
+        if (replicaUrls == null || replicaUrls.trim().isEmpty()) {
+            return primary;
+        }
+        String[] urls = replicaUrls.split(",");
+        List<DataSource> replicas = new ArrayList<>(urls.length);
+        for (String replicaUrl : urls) {
+            replicas.add(withStatementCache(createPool(replicaUrl.trim(), username, password, driver, maximumPoolSize, minimumPoolSize, connTimeout), statementCacheSize));
+        }
+        int[] weights = null;
+        if (replicaWeights != null && !replicaWeights.trim().isEmpty()) {
+            weights = Arrays.stream(replicaWeights.split(",")).mapToInt(w -> Integer.parseInt(w.trim())).toArray();
+        }
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, replicas, weights, LoadBalance.valueOf(loadBalance));
+        routingDataSource.setLagQuery(replicaLagQuery);
+        routingDataSource.setMaxLagSeconds(replicaMaxLag);
+        routingDataSource.setCheckIntervalMillis(replicaCheckInterval);
+        // 以主库连接池的名称注册 JMX，url 中可能包含密码等参数
+        routingDataSource.start(primaryPool.getPoolName());
+        return routingDataSource;
+    }
+
+    HikariDataSource createPool(String url, String username, String password, String driver,
+                                int maximumPoolSize, int minimumPoolSize, int connTimeout) {
         HikariConfig config = new HikariConfig();
         config.setAutoCommit(false);
         config.setJdbcUrl(url);
@@ -42,9 +82,25 @@ public class JdbcConfiguration {
         return new HikariDataSource(config);
     }
 
+    DataSource withStatementCache(HikariDataSource dataSource, int statementCacheSize) {
+        if (statementCacheSize > 0) {
+            return new StatementCachingDataSource(dataSource, statementCacheSize, dataSource.getPoolName());
+        }
+        return dataSource;
+    }
+
+    @Bean
+    JdbcTemplate jdbcTemplate(@Autowired DataSource dataSource, @Value("${autumn.jdbc.fetch-size:0}") int fetchSize,
+                              @Value("${autumn.jdbc.batch-size:1000}") int batchSize) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        jdbcTemplate.setBatchSize(batchSize);
+        return jdbcTemplate;
+    }
+
     @Bean
-    JdbcTemplate jdbcTemplate(@Autowired DataSource dataSource) {
-        return new JdbcTemplate(dataSource);
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate(@Autowired JdbcTemplate jdbcTemplate) {
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
     }
 
     @Bean
@@ -1,6 +1,7 @@
 package com.autumn.jdbc;
 
 import com.autumn.exception.DataAccessException;
+import com.autumn.jdbc.routing.RoutingDataSource;
 import com.autumn.jdbc.tx.TransactionalUtils;
 
 import javax.sql.DataSource;
@@ -10,17 +11,52 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author huangcanjie
  */
 public class JdbcTemplate {
 
+    /**
+     * MySQL 逐行流式读取结果时使用的 fetchSize。
+     * 也可以在连接 URL 中设置 useCursorFetch=true，再使用正数的 fetchSize 按批读取
+     */
+    public static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
     final DataSource dataSource;
 
+    // 查询语句的 fetchSize，0 表示使用驱动的默认值
+    int fetchSize;
+
+    // 批量执行时每次 executeBatch 的行数，0 表示一次执行全部
+    int batchSize = 1000;
+
+    // 读写分离时，事务外的查询使用从库连接
+    final RoutingDataSource routingDataSource;
+
     public JdbcTemplate(DataSource dataSource) {
         this.dataSource = dataSource;
+        this.routingDataSource = RoutingDataSource.unwrap(dataSource);
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
     }
 
     public Number queryForNumber(String sql, Object... args) {
@@ -37,11 +73,11 @@ public class JdbcTemplate {
         if (Number.class.isAssignableFrom(clazz) || clazz.isPrimitive()) {
             return (T) queryForObject(sql, NumberRowMapper.instance, args);
         }
-        return queryForObject(sql, new BeanRowMapper<>(clazz), args);
+        return queryForObject(sql, BeanRowMapper.of(clazz), args);
     }
 
     public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
-        return execute(preparedStatementCreator(sql, args),
+        return executeQuery(preparedStatementCreator(sql, args),
                 // PreparedStatementCallback
                 (PreparedStatement ps) -> {
                     T t = null;
@@ -62,11 +98,11 @@ public class JdbcTemplate {
     }
 
     public <T> List<T> queryForList(String sql, Class<T> clazz, Object... args) {
-        return queryForList(sql, new BeanRowMapper<>(clazz), args);
+        return queryForList(sql, BeanRowMapper.of(clazz), args);
     }
 
     public <T> List<T> queryForList(String sql, RowMapper<T> rowMapper, Object... args) {
-        return execute(preparedStatementCreator(sql, args),
+        return executeQuery(preparedStatementCreator(sql, args),
                 (ps) -> {
                     List<T> list = new ArrayList<>();
                     try (ResultSet rs = ps.executeQuery()) {
@@ -79,6 +115,133 @@ public class JdbcTemplate {
         );
     }
 
+    /**
+     * 由 ResultSetExtractor 读取整个结果集
+     */
+    public <T> T query(String sql, ResultSetExtractor<T> rse, Object... args) {
+        return executeQuery(preparedStatementCreator(sql, args),
+                ps -> {
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rse.extractData(rs);
+                    }
+                });
+    }
+
+    /**
+     * 逐行回调，不保留结果
+     */
+    public void queryForEach(String sql, RowCallbackHandler rch, Object... args) {
+        query(sql, (ResultSetExtractor<Void>) rs -> {
+            while (rs.next()) {
+                rch.processRow(rs);
+            }
+            return null;
+        }, args);
+    }
+
+    /**
+     * 读取第一列为 int 数组，null 为 0
+     */
+    public int[] queryForIntArray(String sql, Object... args) {
+        return query(sql, rs -> {
+            int[] values = new int[ColumnarResultExtractor.INITIAL_CAPACITY];
+            int n = 0;
+            while (rs.next()) {
+                if (n == values.length) {
+                    values = Arrays.copyOf(values, n * 2);
+                }
+                values[n++] = rs.getInt(1);
+            }
+            return Arrays.copyOf(values, n);
+        }, args);
+    }
+
+    /**
+     * 读取第一列为 long 数组，null 为 0
+     */
+    public long[] queryForLongArray(String sql, Object... args) {
+        return query(sql, rs -> {
+            long[] values = new long[ColumnarResultExtractor.INITIAL_CAPACITY];
+            int n = 0;
+            while (rs.next()) {
+                if (n == values.length) {
+                    values = Arrays.copyOf(values, n * 2);
+                }
+                values[n++] = rs.getLong(1);
+            }
+            return Arrays.copyOf(values, n);
+        }, args);
+    }
+
+    /**
+     * 读取第一列为 double 数组，null 为 0
+     */
+    public double[] queryForDoubleArray(String sql, Object... args) {
+        return query(sql, rs -> {
+            double[] values = new double[ColumnarResultExtractor.INITIAL_CAPACITY];
+            int n = 0;
+            while (rs.next()) {
+                if (n == values.length) {
+                    values = Arrays.copyOf(values, n * 2);
+                }
+                values[n++] = rs.getDouble(1);
+            }
+            return Arrays.copyOf(values, n);
+        }, args);
+    }
+
+    /**
+     * 按列读取全部结果，需要区分 null 或者读取多列时使用。数值列需要保存在堆外时，
+     * 使用 query(sql, new ColumnarResultExtractor(true), args)
+     */
+    public ColumnarResult queryForColumnarResult(String sql, Object... args) {
+        return query(sql, new ColumnarResultExtractor(), args);
+    }
+
+    public <T> Stream<T> queryForStream(String sql, Class<T> clazz, Object... args) {
+        return queryForStream(sql, BeanRowMapper.of(clazz), args);
+    }
+
+    /**
+     * 返回按需读取行的 Stream，调用方必须关闭 Stream（例如使用 try-with-resources），
+     * 关闭时释放 ResultSet、PreparedStatement 和连接；在事务中时使用事务的连接，不关闭连接。
+     * 结果集较大时配合 fetchSize 使用，避免驱动一次读入全部结果
+     */
+    public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, Object... args) {
+        Connection currentConnection = TransactionalUtils.getCurrentConnection();
+        Connection conn = currentConnection;
+        boolean resetAutoCommit = false;
+        PreparedStatement ps = null;
+        try {
+            if (conn == null) {
+                conn = getConnection(true);
+                resetAutoCommit = !conn.getAutoCommit();
+                if (resetAutoCommit) {
+                    conn.setAutoCommit(true);
+                }
+            }
+            ps = preparedStatementCreator(sql, args).createPreparedStatement(conn);
+            TransactionalUtils.applyTimeout(ps);
+            ResultSet rs = ps.executeQuery();
+            ResultSetSpliterator<T> spliterator = new ResultSetSpliterator<>(conn, currentConnection == null, resetAutoCommit, ps, rs, rowMapper);
+            return StreamSupport.stream(spliterator, false).onClose(spliterator);
+        } catch (SQLException e) {
+            DataAccessException error = new DataAccessException(e);
+            closeQuietly(ps, error);
+            if (currentConnection == null && conn != null) {
+                try {
+                    if (resetAutoCommit) {
+                        conn.setAutoCommit(false);
+                    }
+                } catch (SQLException ex) {
+                    error.addSuppressed(ex);
+                }
+                closeQuietly(conn, error);
+            }
+            throw error;
+        }
+    }
+
     /*
     执行 update 相关语句，并返回可以搜索的主键
      */
@@ -116,19 +279,113 @@ public class JdbcTemplate {
                 PreparedStatement::executeUpdate);
     }
 
-    public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+    /**
+     * 批量执行同一条语句，每 batchSize 行调用一次 executeBatch。
+     * MySQL 连接 URL 设置 rewriteBatchedStatements=true 时，驱动把一批合并为一条语句发送，
+     * 此时每行的更新数可能为 Statement.SUCCESS_NO_INFO
+     * @return  每行的更新数
+     */
+    public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+        return batchUpdate(sql, batchArgsSetter(batchArgs));
+    }
+
+    public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
         return execute(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                TransactionalUtils.applyTimeout(ps);
+                return executeBatch(ps, pss, null);
+            }
+        });
+    }
+
+    /**
+     * 批量插入并返回每行生成的主键，顺序与 batchArgs 一致
+     */
+    public List<Number> batchInsertReturningKeys(String sql, List<Object[]> batchArgs) {
+        return execute(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                TransactionalUtils.applyTimeout(ps);
+                List<Number> keys = new ArrayList<>(batchArgs.size());
+                executeBatch(ps, batchArgsSetter(batchArgs), keys);
+                if (keys.size() != batchArgs.size()) {
+                    throw new DataAccessException(String.format("Expected %d generated keys but got %d.", batchArgs.size(), keys.size()));
+                }
+                return keys;
+            }
+        });
+    }
+
+    /*
+    按 batchSize 分段执行，keys 不为 null 时收集每段生成的主键
+     */
+    private int[] executeBatch(PreparedStatement ps, BatchPreparedStatementSetter pss, List<Number> keys) throws SQLException {
+        int total = pss.getBatchSize();
+        int[] counts = new int[total];
+        int done = 0;
+        int pending = 0;
+        for (int i = 0; i < total; i++) {
+            pss.setValues(ps, i);
+            ps.addBatch();
+            if (++pending == batchSize || i == total - 1) {
+                int[] chunk = ps.executeBatch();
+                System.arraycopy(chunk, 0, counts, done, Math.min(chunk.length, total - done));
+                done += pending;
+                pending = 0;
+                if (keys != null) {
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        while (rs.next()) {
+                            keys.add((Number) rs.getObject(1));
+                        }
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    private BatchPreparedStatementSetter batchArgsSetter(List<Object[]> batchArgs) {
+        return new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                bindArgs(ps, batchArgs.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batchArgs.size();
+            }
+        };
+    }
+
+    public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+        return execute(psc, action, false);
+    }
+
+    /*
+    执行查询，没有事务时可以使用从库连接
+     */
+    private <T> T executeQuery(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+        return execute(psc, action, true);
+    }
+
+    private <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action, boolean readOnly) {
+        return executeInConnection(conn -> {
             // execute，回调方法为，执行 psc 中的回调方法，得到预编译的sql语句，然后执行 action 的回调方法，执行其中sql语句
             try (PreparedStatement ps = psc.createPreparedStatement(conn)) {
+                TransactionalUtils.applyTimeout(ps);
                 return action.doInPreparedStatement(ps);
             }
-        });
+        }, readOnly);
     }
 
     /*
     执行 connection 接口传递进来的回调方法
      */
     public <T> T execute(ConnectionCallback<T> action) {
+        return executeInConnection(action, false);
+    }
+
+    private <T> T executeInConnection(ConnectionCallback<T> action, boolean readOnly) {
         // 获取当前事务连接
         Connection currentConnection = TransactionalUtils.getCurrentConnection();
         if (currentConnection != null) {
@@ -139,7 +396,7 @@ public class JdbcTemplate {
             }
         }
         // 没有事务，获取新连接
-        try (Connection conn = dataSource.getConnection()) {
+        try (Connection conn = getConnection(readOnly)) {
             // 检查是否开启自动提交，如果没有，则设置自动提交，连接处理完毕后，再重置
             final boolean autoCommit = conn.getAutoCommit();
             if (!autoCommit) {
@@ -156,17 +413,38 @@ public class JdbcTemplate {
         }
     }
 
+    /*
+    获取不在事务中的连接，只读时优先使用从库
+     */
+    private Connection getConnection(boolean readOnly) throws SQLException {
+        return readOnly && routingDataSource != null ? routingDataSource.getReadConnection() : dataSource.getConnection();
+    }
+
     /*
     创建一个 预编译sql语句创建器的回调接口，回调方法为返回一个预编译好的 PreparedStatement
      */
     private PreparedStatementCreator preparedStatementCreator(String sql, Object... args) {
         return conn -> {
-            PreparedStatement ps = conn.prepareStatement(sql);
+            PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (fetchSize != 0) {
+                ps.setFetchSize(fetchSize);
+            }
             bindArgs(ps, args);
             return ps;
         };
     }
 
+    private void closeQuietly(AutoCloseable closeable, Exception error) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            error.addSuppressed(e);
+        }
+    }
+
     private void bindArgs(PreparedStatement ps, Object... args) throws SQLException {
         for (int i = 0; i < args.length; i++) {
             ps.setObject(i + 1, args[i]);
@@ -179,7 +457,7 @@ class StringRowMapper implements RowMapper<String>{
 
     @Override
     public String mapRow(ResultSet rs, int rowNum) throws SQLException {
-        return rs.getString(rowNum);
+        return rs.getString(1);
     }
 }
 
@@ -188,7 +466,7 @@ class BooleanRowMapper implements RowMapper<Boolean> {
 
     @Override
     public Boolean mapRow(ResultSet rs, int rowNum) throws SQLException {
-        return rs.getBoolean(rowNum);
+        return rs.getBoolean(1);
     }
 }
 
@@ -0,0 +1,97 @@
+package com.autumn.jdbc;
+
+import com.autumn.exception.DataAccessException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * queryForStream 的数据源：每次读取一行映射后交给 Stream。
+ * 读完最后一行或者 Stream 关闭时，关闭 ResultSet、PreparedStatement，以及不属于事务的连接
+ * @author huangcanjie
+ */
+class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> implements Runnable {
+
+    final Connection connection;
+    // 连接由事务管理时为 false
+    final boolean closeConnection;
+    final boolean resetAutoCommit;
+    final PreparedStatement ps;
+    final ResultSet rs;
+    final RowMapper<T> rowMapper;
+    int rowNum;
+    boolean closed;
+
+    ResultSetSpliterator(Connection connection, boolean closeConnection, boolean resetAutoCommit, PreparedStatement ps, ResultSet rs, RowMapper<T> rowMapper) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED);
+        this.connection = connection;
+        this.closeConnection = closeConnection;
+        this.resetAutoCommit = resetAutoCommit;
+        this.ps = ps;
+        this.rs = rs;
+        this.rowMapper = rowMapper;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (!rs.next()) {
+                run();
+                return false;
+            }
+            action.accept(rowMapper.mapRow(rs, ++rowNum));
+            return true;
+        } catch (SQLException e) {
+            run();
+            throw new DataAccessException(e);
+        }
+    }
+
+    /**
+     * 关闭资源，可以重复调用
+     */
+    @Override
+    public void run() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        SQLException error = null;
+        try {
+            rs.close();
+        } catch (SQLException e) {
+            error = e;
+        }
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            error = error == null ? e : error;
+        }
+        if (closeConnection) {
+            if (resetAutoCommit) {
+                try {
+                    connection.setAutoCommit(false);
+                } catch (SQLException e) {
+                    error = error == null ? e : error;
+                }
+            }
+            // 恢复 autoCommit 失败时也要归还连接
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                error = error == null ? e : error;
+            }
+        }
+        if (error != null) {
+            throw new DataAccessException(error);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.autumn.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 逐行处理查询结果，不保留结果，适合导出等大结果集
+ * @author huangcanjie
+ */
+@FunctionalInterface
+public interface RowCallbackHandler {
+
+    /**
+     * 处理当前行，不要调用 rs.next()
+     */
+    void processRow(ResultSet rs) throws SQLException;
+}
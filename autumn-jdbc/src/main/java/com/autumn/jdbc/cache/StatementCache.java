@@ -0,0 +1,281 @@
+package com.autumn.jdbc.cache;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个物理连接上的 PreparedStatement 缓存，按最近使用淘汰。
+ * 借出的语句以代理返回，调用方 close 时清空参数和批量，把修改过的 fetchSize、查询超时、maxRows 等恢复为创建时的值后放回缓存，不关闭语句；
+ * 修改了无法读取或恢复的状态（escapeProcessing、poolable、closeOnCompletion 等）的语句不再缓存
+ * @author huangcanjie
+ */
+final class StatementCache {
+
+    final StatementCachingDataSource owner;
+    final Connection physicalConnection;
+    final int maxSize;
+
+    final LinkedHashMap<StatementKey, CachedStatement> statements;
+
+    StatementCache(StatementCachingDataSource owner, Connection physicalConnection, int maxSize) {
+        this.owner = owner;
+        this.physicalConnection = physicalConnection;
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<StatementKey, CachedStatement>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                owner.evictions.increment();
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * 借出语句。同一语句正在使用时（如遍历结果时再次执行同一 SQL），创建不缓存的语句
+     * @param connection  调用方使用的连接代理，作为语句的 getConnection 返回值
+     */
+    synchronized PreparedStatement lease(StatementKey key, Connection connection) throws SQLException {
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            owner.hits.increment();
+            cached.inUse = true;
+            return cached.lease(connection);
+        }
+        owner.misses.increment();
+        PreparedStatement statement = prepare(key);
+        if (cached != null) {
+            return statement;
+        }
+        try {
+            cached = new CachedStatement(this, statement);
+        } catch (SQLException | RuntimeException e) {
+            // 读取语句初始状态失败时关闭刚创建的语句
+            try {
+                statement.close();
+            } catch (SQLException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+        cached.inUse = true;
+        statements.put(key, cached);
+        return cached.lease(connection);
+    }
+
+    PreparedStatement prepare(StatementKey key) throws SQLException {
+        if (key.autoGeneratedKeys >= 0) {
+            return physicalConnection.prepareStatement(key.sql, key.autoGeneratedKeys);
+        }
+        return physicalConnection.prepareStatement(key.sql, key.resultSetType, key.resultSetConcurrency);
+    }
+
+    synchronized void release(CachedStatement cached) {
+        cached.inUse = false;
+        if (cached.evicted) {
+            cached.closeQuietly();
+            return;
+        }
+        if (cached.dirty) {
+            statements.values().remove(cached);
+            cached.closeQuietly();
+            return;
+        }
+        try {
+            cached.statement.clearParameters();
+            cached.statement.clearBatch();
+            cached.statement.clearWarnings();
+            cached.restore();
+        } catch (SQLException e) {
+            // 无法复用的语句不再缓存
+            statements.values().remove(cached);
+            cached.closeQuietly();
+        }
+    }
+
+    synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * 物理连接关闭（被连接池淘汰）后清空缓存
+     */
+    synchronized void invalidate() {
+        List<CachedStatement> values = new ArrayList<>(statements.values());
+        statements.clear();
+        for (CachedStatement cached : values) {
+            cached.evict();
+        }
+    }
+
+    boolean isValid() {
+        try {
+            return !physicalConnection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    static final class CachedStatement {
+        static final int FETCH_SIZE = 1;
+        static final int QUERY_TIMEOUT = 1 << 1;
+        static final int MAX_ROWS = 1 << 2;
+        static final int MAX_FIELD_SIZE = 1 << 3;
+        static final int FETCH_DIRECTION = 1 << 4;
+
+        final StatementCache cache;
+        final PreparedStatement statement;
+        // 创建时的状态，归还时恢复
+        final int fetchSize;
+        final int queryTimeout;
+        final int maxRows;
+        final int maxFieldSize;
+        final int fetchDirection;
+        boolean inUse;
+        boolean evicted;
+        // 本次借出修改过的状态
+        int modified;
+        // 修改了无法恢复的状态，归还时关闭
+        boolean dirty;
+
+        CachedStatement(StatementCache cache, PreparedStatement statement) throws SQLException {
+            this.cache = cache;
+            this.statement = statement;
+            this.fetchSize = statement.getFetchSize();
+            this.queryTimeout = statement.getQueryTimeout();
+            this.maxRows = statement.getMaxRows();
+            this.maxFieldSize = statement.getMaxFieldSize();
+            this.fetchDirection = statement.getFetchDirection();
+        }
+
+        /**
+         * 记录借出期间调用的 setter
+         */
+        void onInvoke(String methodName) {
+            switch (methodName) {
+                case "setFetchSize":
+                    modified |= FETCH_SIZE;
+                    break;
+                case "setQueryTimeout":
+                    modified |= QUERY_TIMEOUT;
+                    break;
+                case "setMaxRows":
+                    modified |= MAX_ROWS;
+                    break;
+                case "setMaxFieldSize":
+                    modified |= MAX_FIELD_SIZE;
+                    break;
+                case "setFetchDirection":
+                    modified |= FETCH_DIRECTION;
+                    break;
+                case "setLargeMaxRows":
+                case "setEscapeProcessing":
+                case "setPoolable":
+                case "closeOnCompletion":
+                case "setCursorName":
+                    dirty = true;
+                    break;
+                default:
+            }
+        }
+
+        void restore() throws SQLException {
+            int flags = modified;
+            modified = 0;
+            if ((flags & FETCH_SIZE) != 0) {
+                statement.setFetchSize(fetchSize);
+            }
+            if ((flags & QUERY_TIMEOUT) != 0) {
+                statement.setQueryTimeout(queryTimeout);
+            }
+            if ((flags & MAX_ROWS) != 0) {
+                statement.setMaxRows(maxRows);
+            }
+            if ((flags & MAX_FIELD_SIZE) != 0) {
+                statement.setMaxFieldSize(maxFieldSize);
+            }
+            if ((flags & FETCH_DIRECTION) != 0) {
+                statement.setFetchDirection(fetchDirection);
+            }
+        }
+
+        PreparedStatement lease(Connection connection) {
+            return (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new LeasedStatementHandler(this, connection));
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 一次借出的语句，close 后不能再使用
+     */
+    static final class LeasedStatementHandler implements InvocationHandler {
+        final CachedStatement cached;
+        final Connection connection;
+        boolean closed;
+
+        LeasedStatementHandler(CachedStatement cached, Connection connection) {
+            this.cached = cached;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        cached.cache.release(cached);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || cached.statement.isClosed();
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached " + cached.statement;
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement is closed.");
+                    }
+                    cached.onInvoke(method.getName());
+            }
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.autumn.jdbc.cache;
+
+/**
+ * 以 JMX 导出的 PreparedStatement 缓存状态，ObjectName 为 com.autumn:type=StatementCache,name="名称"
+ * @author huangcanjie
+ */
+public interface StatementCacheMXBean {
+
+    int getCacheSize();
+
+    int getConnectionCount();
+
+    int getCachedStatementCount();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+}
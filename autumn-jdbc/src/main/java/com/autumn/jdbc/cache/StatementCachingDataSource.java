@@ -0,0 +1,266 @@
+package com.autumn.jdbc.cache;
+
+import com.autumn.aop.metrics.MBeans;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * 为连接池中的每个物理连接缓存 PreparedStatement，适用于驱动没有开启语句缓存的情况
+ * （如 MySQL 使用 useServerPrepStmts=true 而没有设置 cachePrepStmts=true 时，每次 prepareStatement 都要请求服务器预编译）。
+ * <p>
+ * 返回的连接是连接池连接的代理，prepareStatement(sql)、prepareStatement(sql, autoGeneratedKeys)、
+ * prepareStatement(sql, resultSetType, resultSetConcurrency) 按 SQL 和这些参数从缓存中借出语句，其他方法直接委托。
+ * 语句在物理连接上创建，连接归还连接池时不会被关闭；物理连接被连接池关闭后，缓存在下次遇到新的物理连接时清除。
+ * <p>
+ * 由于语句不经过连接池的语句代理（如 HikariCP 的 ProxyStatement），连接池不知道这些语句的存在：
+ * 不会因为执行了语句而把连接标记为需要回滚，连接归还时也不会关闭这些语句。
+ * 因此只应在 autoCommit 连接或由事务管理器显式提交、回滚的连接上使用
+ * @author huangcanjie
+ */
+public class StatementCachingDataSource implements DataSource, StatementCacheMXBean, AutoCloseable {
+
+    final DataSource dataSource;
+    final int cacheSize;
+
+    // 物理连接 -> 语句缓存，以对象标识区分连接
+    final Map<Connection, StatementCache> caches = new IdentityHashMap<>();
+
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+
+    final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    final ObjectName objectName;
+
+    /**
+     * @param cacheSize  每个物理连接缓存的语句数
+     * @param name  JMX 中的名称
+     */
+    public StatementCachingDataSource(DataSource dataSource, int cacheSize, String name) {
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("cacheSize must be positive.");
+        }
+        this.dataSource = dataSource;
+        this.cacheSize = cacheSize;
+        this.objectName = MBeans.register(mBeanServer, "StatementCache", name, this);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(dataSource.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(dataSource.getConnection(username, password));
+    }
+
+    Connection wrap(Connection connection) throws SQLException {
+        // 连接池的连接代理每次借出都不同，缓存绑定在其委托的物理连接上
+        Connection physicalConnection = connection.isWrapperFor(Connection.class) ? connection.unwrap(Connection.class) : connection;
+        StatementCache cache = getCache(physicalConnection);
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new CachingConnectionHandler(connection, cache));
+    }
+
+    StatementCache getCache(Connection physicalConnection) {
+        synchronized (caches) {
+            StatementCache cache = caches.get(physicalConnection);
+            if (cache == null) {
+                // 出现新的物理连接，通常是连接池替换了关闭的连接，清除已关闭连接的缓存
+                Iterator<StatementCache> iterator = caches.values().iterator();
+                while (iterator.hasNext()) {
+                    StatementCache existing = iterator.next();
+                    if (!existing.isValid()) {
+                        iterator.remove();
+                        existing.invalidate();
+                    }
+                }
+                cache = new StatementCache(this, physicalConnection, cacheSize);
+                caches.put(physicalConnection, cache);
+            }
+            return cache;
+        }
+    }
+
+    @Override
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    @Override
+    public int getConnectionCount() {
+        synchronized (caches) {
+            return caches.size();
+        }
+    }
+
+    @Override
+    public int getCachedStatementCount() {
+        int count = 0;
+        for (StatementCache cache : snapshotCaches()) {
+            count += cache.size();
+        }
+        return count;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    List<StatementCache> snapshotCaches() {
+        synchronized (caches) {
+            return new ArrayList<>(caches.values());
+        }
+    }
+
+    /**
+     * 关闭缓存的语句，并关闭委托的 DataSource（如果可以关闭）
+     */
+    @Override
+    public void close() throws SQLException {
+        if (objectName != null) {
+            MBeans.unregister(mBeanServer, objectName);
+        }
+        List<StatementCache> all = snapshotCaches();
+        synchronized (caches) {
+            caches.clear();
+        }
+        for (StatementCache cache : all) {
+            cache.invalidate();
+        }
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (SQLException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SQLException("Could not close " + dataSource, e);
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+
+    /**
+     * 连接代理，prepareStatement 从缓存借出语句
+     */
+    static final class CachingConnectionHandler implements InvocationHandler {
+        final Connection connection;
+        final StatementCache cache;
+
+        CachingConnectionHandler(Connection connection, StatementCache cache) {
+            this.connection = connection;
+            this.cache = cache;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    StatementKey key = toKey(method, args);
+                    if (key != null) {
+                        if (connection.isClosed()) {
+                            throw new SQLException("Connection is closed.");
+                        }
+                        return cache.lease(key, (Connection) proxy);
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Caching " + connection;
+                default:
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        static StatementKey toKey(Method method, Object[] args) {
+            Class<?>[] types = method.getParameterTypes();
+            if (types.length == 1) {
+                return new StatementKey((String) args[0], ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, -1);
+            }
+            if (types.length == 2 && types[1] == int.class) {
+                int autoGeneratedKeys = (Integer) args[1];
+                return autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS
+                        ? new StatementKey((String) args[0], ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, autoGeneratedKeys)
+                        : new StatementKey((String) args[0], ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, -1);
+            }
+            if (types.length == 3) {
+                return new StatementKey((String) args[0], (Integer) args[1], (Integer) args[2], -1);
+            }
+            // 指定列名或列下标返回主键、指定 holdability 的语句不缓存
+            return null;
+        }
+    }
+}
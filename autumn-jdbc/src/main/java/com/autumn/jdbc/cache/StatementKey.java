@@ -0,0 +1,40 @@
+package com.autumn.jdbc.cache;
+
+/**
+ * 缓存 PreparedStatement 的键：SQL 以及创建时的结果集类型、并发模式和是否返回生成的主键
+ * @author huangcanjie
+ */
+final class StatementKey {
+
+    final String sql;
+    final int resultSetType;
+    final int resultSetConcurrency;
+    final int autoGeneratedKeys;
+    final int hash;
+
+    StatementKey(String sql, int resultSetType, int resultSetConcurrency, int autoGeneratedKeys) {
+        this.sql = sql;
+        this.resultSetType = resultSetType;
+        this.resultSetConcurrency = resultSetConcurrency;
+        this.autoGeneratedKeys = autoGeneratedKeys;
+        this.hash = ((sql.hashCode() * 31 + resultSetType) * 31 + resultSetConcurrency) * 31 + autoGeneratedKeys;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StatementKey)) {
+            return false;
+        }
+        StatementKey that = (StatementKey) o;
+        return resultSetType == that.resultSetType && resultSetConcurrency == that.resultSetConcurrency
+                && autoGeneratedKeys == that.autoGeneratedKeys && sql.equals(that.sql);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,115 @@
+package com.autumn.jdbc.named;
+
+import com.autumn.exception.DataAccessException;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 读取 Bean 属性作为命名参数的值，每个类只解析一次。
+ * getter（getXxx、isXxx）通过 LambdaMetafactory 直接调用，public 字段通过 Field 读取，getter 优先
+ * @author huangcanjie
+ */
+final class BeanPropertyAccessors {
+
+    static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    static final ClassValue<BeanPropertyAccessors> ACCESSORS = new ClassValue<BeanPropertyAccessors>() {
+        @Override
+        protected BeanPropertyAccessors computeValue(Class<?> type) {
+            return new BeanPropertyAccessors(type);
+        }
+    };
+
+    final Class<?> clazz;
+    final Map<String, Function<Object, Object>> accessors = new HashMap<>();
+
+    static BeanPropertyAccessors of(Class<?> clazz) {
+        return ACCESSORS.get(clazz);
+    }
+
+    BeanPropertyAccessors(Class<?> clazz) {
+        this.clazz = clazz;
+        for (Field field : clazz.getFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                accessors.put(field.getName(), bean -> {
+                    try {
+                        return field.get(bean);
+                    } catch (IllegalAccessException e) {
+                        throw new DataAccessException(String.format("Could not access field %s of class %s", field.getName(), clazz.getName()), e);
+                    }
+                });
+            }
+        }
+        for (Method method : clazz.getMethods()) {
+            if (method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers()) || method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            String name = method.getName();
+            String prop = null;
+            if (name.length() > 3 && name.startsWith("get") && method.getReturnType() != void.class) {
+                prop = name.substring(3);
+            } else if (name.length() > 2 && name.startsWith("is") && method.getReturnType() == boolean.class) {
+                prop = name.substring(2);
+            }
+            if (prop != null) {
+                accessors.put(Character.toLowerCase(prop.charAt(0)) + prop.substring(1), createGetter(method));
+            }
+        }
+    }
+
+    /**
+     * @return  没有这个属性时返回 null
+     */
+    Function<Object, Object> get(String name) {
+        return accessors.get(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Function<Object, Object> createGetter(Method method) {
+        if (isVisible(method.getDeclaringClass()) && isVisible(method.getReturnType())) {
+            try {
+                MethodHandle handle = LOOKUP.unreflect(method);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply", MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class), handle,
+                        MethodType.methodType(method.getReturnType(), method.getDeclaringClass()).wrap());
+                return (Function<Object, Object>) site.getTarget().invoke();
+            } catch (Throwable ignored) {
+            }
+        }
+        // 类不可访问，或者由其他类加载器加载时使用反射
+        return bean -> {
+            try {
+                return method.invoke(bean);
+            } catch (ReflectiveOperationException ex) {
+                throw new DataAccessException(String.format("Could not call %s", method), ex);
+            }
+        };
+    }
+
+    /**
+     * 生成的实现由 LOOKUP 的类加载器定义，类型必须能从这个类加载器解析到同一个类
+     */
+    static boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, LOOKUP.lookupClass().getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
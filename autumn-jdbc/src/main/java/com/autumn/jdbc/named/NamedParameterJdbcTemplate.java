@@ -0,0 +1,273 @@
+package com.autumn.jdbc.named;
+
+import com.autumn.exception.DataAccessException;
+import com.autumn.jdbc.BatchPreparedStatementSetter;
+import com.autumn.jdbc.JdbcTemplate;
+import com.autumn.jdbc.ResultSetExtractor;
+import com.autumn.jdbc.RowCallbackHandler;
+import com.autumn.jdbc.RowMapper;
+
+import java.lang.reflect.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 使用 :name 命名参数的 JdbcTemplate。参数来自 Map 或者 Bean（按 getter 和 public 字段读取），
+ * :user.id 这样的名称按路径逐级读取属性（Map 中存在同名的键时直接使用该键）。
+ * SQL 按文本解析一次并缓存，转换为 ? 后交给 JdbcTemplate 执行。
+ * <p>
+ * 集合或数组参数（byte[] 除外）展开为多个 ?，可用于 IN (:ids)。展开的个数向上取整到 1、2、4、8 …… 1024（更大时取 1024 的倍数），
+ * 多出的位置重复最后一个值，这样同一条 SQL 只产生少数几种文本，服务器和驱动的语句缓存可以复用
+ * @author huangcanjie
+ */
+public class NamedParameterJdbcTemplate {
+
+    // 缓存的 SQL 数量上限，超过后新的 SQL 不再缓存
+    static final int PARSED_SQL_CACHE_LIMIT = 1024;
+
+    final JdbcTemplate jdbcTemplate;
+
+    final ConcurrentMap<String, ParsedSql> parsedSqlCache = new ConcurrentHashMap<>();
+
+    public NamedParameterJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * @param params  Map 或者 Bean，没有参数时可以为 null
+     */
+    public <T> T queryForObject(String sql, Object params, Class<T> clazz) {
+        PositionalSql ps = toPositional(sql, params);
+        return jdbcTemplate.queryForObject(ps.sql, clazz, ps.args);
+    }
+
+    public <T> T queryForObject(String sql, Object params, RowMapper<T> rowMapper) {
+        PositionalSql ps = toPositional(sql, params);
+        return jdbcTemplate.queryForObject(ps.sql, rowMapper, ps.args);
+    }
+
+    public <T> List<T> queryForList(String sql, Object params, Class<T> clazz) {
+        PositionalSql ps = toPositional(sql, params);
+        return jdbcTemplate.queryForList(ps.sql, clazz, ps.args);
+    }
+
+    public <T> List<T> queryForList(String sql, Object params, RowMapper<T> rowMapper) {
+        PositionalSql ps = toPositional(sql, params);
+        return jdbcTemplate.queryForList(ps.sql, rowMapper, ps.args);
+    }
+
+    public <T> Stream<T> queryForStream(String sql, Object params, RowMapper<T> rowMapper) {
+        PositionalSql ps = toPositional(sql, params);
+        return jdbcTemplate.queryForStream(ps.sql, rowMapper, ps.args);
+    }
+
+    public <T> T query(String sql, Object params, ResultSetExtractor<T> rse) {
+        PositionalSql ps = toPositional(sql, params);
+        return jdbcTemplate.query(ps.sql, rse, ps.args);
+    }
+
+    public void queryForEach(String sql, Object params, RowCallbackHandler rch) {
+        PositionalSql ps = toPositional(sql, params);
+        jdbcTemplate.queryForEach(ps.sql, rch, ps.args);
+    }
+
+    public int update(String sql, Object params) {
+        PositionalSql ps = toPositional(sql, params);
+        return jdbcTemplate.update(ps.sql, ps.args);
+    }
+
+    /**
+     * 批量执行，每个元素为一行的参数（Map 或者 Bean）。集合参数展开后，每行的 SQL 必须相同
+     */
+    public int[] batchUpdate(String sql, List<?> batchParams) {
+        if (batchParams.isEmpty()) {
+            return new int[0];
+        }
+        List<Object[]> batchArgs = new ArrayList<>(batchParams.size());
+        String positionalSql = null;
+        for (Object params : batchParams) {
+            PositionalSql ps = toPositional(sql, params);
+            if (positionalSql == null) {
+                positionalSql = ps.sql;
+            } else if (!positionalSql.equals(ps.sql)) {
+                throw new DataAccessException(String.format("Collection parameters expand differently in batch: %s", sql));
+            }
+            batchArgs.add(ps.args);
+        }
+        return jdbcTemplate.batchUpdate(positionalSql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Object[] args = batchArgs.get(i);
+                for (int j = 0; j < args.length; j++) {
+                    ps.setObject(j + 1, args[j]);
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batchArgs.size();
+            }
+        });
+    }
+
+    ParsedSql getParsedSql(String sql) {
+        ParsedSql parsed = parsedSqlCache.get(sql);
+        if (parsed == null) {
+            parsed = ParsedSql.parse(sql);
+            if (parsedSqlCache.size() < PARSED_SQL_CACHE_LIMIT) {
+                parsedSqlCache.putIfAbsent(sql, parsed);
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * 转换为 ? 参数的 SQL 和按位置排列的参数
+     */
+    PositionalSql toPositional(String sql, Object params) {
+        ParsedSql parsed = getParsedSql(sql);
+        String[] names = parsed.names;
+        Object[] values = new Object[names.length];
+        int[] sizes = null;
+        int total = names.length;
+        for (int i = 0; i < names.length; i++) {
+            Object value = getValue(params, names[i]);
+            values[i] = value;
+            int size = collectionSize(value);
+            if (size < 0) {
+                continue;
+            }
+            if (size == 0) {
+                throw new DataAccessException(String.format("Empty collection for parameter %s in SQL: %s", names[i], sql));
+            }
+            if (sizes == null) {
+                sizes = new int[names.length];
+                Arrays.fill(sizes, ParsedSql.SINGLE);
+            }
+            sizes[i] = ParsedSql.bucket(size);
+            total += sizes[i] - 1;
+        }
+        if (sizes == null) {
+            return new PositionalSql(parsed.positionalSql, values);
+        }
+        Object[] args = new Object[total];
+        int index = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (sizes[i] == ParsedSql.SINGLE) {
+                args[index++] = values[i];
+                continue;
+            }
+            Object last = null;
+            int count = 0;
+            for (Iterator<?> iterator = iterate(values[i]); iterator.hasNext(); count++) {
+                last = iterator.next();
+                args[index++] = last;
+            }
+            // 重复最后一个值填满展开的位置
+            for (; count < sizes[i]; count++) {
+                args[index++] = last;
+            }
+        }
+        return new PositionalSql(parsed.getExpandedSql(sizes), args);
+    }
+
+    Object getValue(Object params, String name) {
+        int dot = name.indexOf('.');
+        if (dot < 0 || params instanceof Map && ((Map<?, ?>) params).containsKey(name)) {
+            return getProperty(params, name, name);
+        }
+        Object value = params;
+        int start = 0;
+        while (true) {
+            String property = dot < 0 ? name.substring(start) : name.substring(start, dot);
+            value = getProperty(value, property, name);
+            if (dot < 0) {
+                return value;
+            }
+            if (value == null) {
+                throw new DataAccessException(String.format("Null value for %s in parameter %s.", name.substring(0, dot), name));
+            }
+            start = dot + 1;
+            dot = name.indexOf('.', start);
+        }
+    }
+
+    /**
+     * 读取 Map 的键或者 Bean 的属性
+     * @param name  完整的参数名，用于错误信息
+     */
+    static Object getProperty(Object target, String property, String name) {
+        if (target instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) target;
+            Object value = map.get(property);
+            if (value == null && !map.containsKey(property)) {
+                throw new DataAccessException(String.format("No value supplied for parameter %s.", name));
+            }
+            return value;
+        }
+        if (target == null) {
+            throw new DataAccessException(String.format("No value supplied for parameter %s.", name));
+        }
+        Function<Object, Object> accessor = BeanPropertyAccessors.of(target.getClass()).get(property);
+        if (accessor == null) {
+            throw new DataAccessException(String.format("No property %s found in class %s.", property, target.getClass().getName()));
+        }
+        return accessor.apply(target);
+    }
+
+    /**
+     * @return  不是集合或数组时返回 -1，byte[] 作为二进制值，不展开
+     */
+    static int collectionSize(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).size();
+        }
+        if (value instanceof Object[]) {
+            return ((Object[]) value).length;
+        }
+        if (value != null && value.getClass().isArray() && !(value instanceof byte[])) {
+            return Array.getLength(value);
+        }
+        return -1;
+    }
+
+    static Iterator<?> iterate(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).iterator();
+        }
+        if (value instanceof Object[]) {
+            return Arrays.asList((Object[]) value).iterator();
+        }
+        // 基本类型数组
+        int length = Array.getLength(value);
+        List<Object> values = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            values.add(Array.get(value, i));
+        }
+        return values.iterator();
+    }
+
+    static final class PositionalSql {
+        final String sql;
+        final Object[] args;
+
+        PositionalSql(String sql, Object[] args) {
+            this.sql = sql;
+            this.args = args;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.autumn.jdbc.named;
+
+import com.autumn.exception.DataAccessException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 解析后的命名参数 SQL，不可变：fragments 为参数之间的 SQL 片段，比参数多一个；names 为按出现顺序的参数名，同名参数可以出现多次。
+ * 集合参数展开为多个 ?，展开后的 SQL 按每个参数的占位符个数缓存
+ * @author huangcanjie
+ */
+final class ParsedSql {
+
+    // 集合参数展开的占位符个数，集合大小向上取整到其中一个值，超过最大值时取最大值的倍数
+    static final int[] BUCKETS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024};
+
+    // 不是集合的参数
+    static final int SINGLE = -1;
+
+    final String sql;
+    final String[] fragments;
+    final String[] names;
+    // 没有集合参数时的 SQL
+    final String positionalSql;
+
+    final ConcurrentMap<String, String> expandedSql = new ConcurrentHashMap<>();
+
+    ParsedSql(String sql, String[] fragments, String[] names) {
+        this.sql = sql;
+        this.fragments = fragments;
+        this.names = names;
+        int[] sizes = new int[names.length];
+        Arrays.fill(sizes, SINGLE);
+        this.positionalSql = build(sizes);
+    }
+
+    /**
+     * 解析 :name 参数，跳过引号中的内容、注释和 :: 类型转换
+     */
+    static ParsedSql parse(String sql) {
+        List<String> fragments = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        boolean positional = false;
+        StringBuilder current = new StringBuilder(sql.length());
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            int end = i + 1;
+            if (c == '\'' || c == '"' || c == '`') {
+                end = skipQuoted(sql, i, c);
+            } else if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+                end = sql.indexOf('\n', i);
+                end = end < 0 ? n : end + 1;
+            } else if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+                end = sql.indexOf("*/", i + 2);
+                end = end < 0 ? n : end + 2;
+            } else if (c == ':' && i + 1 < n) {
+                char next = sql.charAt(i + 1);
+                if (next == ':') {
+                    end = i + 2;
+                } else if (Character.isJavaIdentifierStart(next)) {
+                    end = i + 2;
+                    while (end < n && (Character.isJavaIdentifierPart(sql.charAt(end)) || sql.charAt(end) == '.')) {
+                        end++;
+                    }
+                    fragments.add(current.toString());
+                    current.setLength(0);
+                    names.add(sql.substring(i + 1, end));
+                    i = end;
+                    continue;
+                }
+            } else if (c == '?') {
+                positional = true;
+            }
+            current.append(sql, i, end);
+            i = end;
+        }
+        fragments.add(current.toString());
+        if (positional && !names.isEmpty()) {
+            throw new DataAccessException(String.format("Cannot mix named and positional parameters in SQL: %s", sql));
+        }
+        return new ParsedSql(sql, fragments.toArray(new String[0]), names.toArray(new String[0]));
+    }
+
+    static int skipQuoted(String sql, int start, char quote) {
+        int n = sql.length();
+        int i = start + 1;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i += 2;
+            } else if (c == quote) {
+                // 连续两个引号表示引号本身
+                if (i + 1 < n && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 集合大小对应的占位符个数
+     */
+    static int bucket(int size) {
+        for (int bucket : BUCKETS) {
+            if (size <= bucket) {
+                return bucket;
+            }
+        }
+        int max = BUCKETS[BUCKETS.length - 1];
+        return (size + max - 1) / max * max;
+    }
+
+    /**
+     * 集合参数展开后的 SQL
+     * @param sizes  每个参数的占位符个数，SINGLE 表示不是集合
+     */
+    String getExpandedSql(int[] sizes) {
+        return expandedSql.computeIfAbsent(Arrays.toString(sizes), key -> build(sizes));
+    }
+
+    String build(int[] sizes) {
+        StringBuilder sb = new StringBuilder(sql.length() + names.length * 2);
+        sb.append(fragments[0]);
+        for (int i = 0; i < names.length; i++) {
+            int count = sizes[i] == SINGLE ? 1 : sizes[i];
+            for (int j = 0; j < count; j++) {
+                sb.append(j == 0 ? "?" : ", ?");
+            }
+            sb.append(fragments[i + 1]);
+        }
+        return sb.toString();
+    }
+}
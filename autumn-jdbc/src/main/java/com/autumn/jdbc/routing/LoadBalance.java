@@ -0,0 +1,18 @@
+package com.autumn.jdbc.routing;
+
+/**
+ * 在健康的从库之间分配读连接的方式
+ * @author huangcanjie
+ */
+public enum LoadBalance {
+
+    /**
+     * 选择借出连接数与权重之比最小的从库
+     */
+    LEAST_OUTSTANDING,
+
+    /**
+     * 按权重平滑轮询
+     */
+    WEIGHTED_ROUND_ROBIN
+}
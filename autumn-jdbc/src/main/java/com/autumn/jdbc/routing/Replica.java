@@ -0,0 +1,34 @@
+package com.autumn.jdbc.routing;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个从库：权重、健康状态、复制延迟和借出的连接数
+ * @author huangcanjie
+ */
+final class Replica {
+
+    final String name;
+    final DataSource dataSource;
+    final int weight;
+
+    final AtomicInteger outstanding = new AtomicInteger();
+    final LongAdder acquired = new LongAdder();
+
+    volatile boolean healthy = true;
+    // 最近一次检查的复制延迟（秒），-1 表示未知
+    volatile long lagSeconds = -1;
+
+    Replica(String name, DataSource dataSource, int weight) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.weight = weight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s healthy=%s lag=%d outstanding=%d acquired=%d", name, healthy, lagSeconds, outstanding.get(), acquired.sum());
+    }
+}
@@ -0,0 +1,444 @@
+package com.autumn.jdbc.routing;
+
+import com.autumn.aop.metrics.MBeans;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * 读写分离的 DataSource：getConnection 返回主库连接，getReadConnection 按负载均衡方式返回健康从库的连接，
+ * 没有健康的从库时返回主库连接。JdbcTemplate 在事务外的查询、DataSourceTransactionManager 的只读事务使用读连接，
+ * 写操作和写事务中的查询使用主库。
+ * <p>
+ * 后台线程定期检查从库：执行 lagQuery（返回复制延迟秒数的查询）或者 Connection.isValid，
+ * 检查失败或者延迟超过 maxLagSeconds 的从库被移出，恢复后重新加入；获取连接失败的从库立即移出。
+ * 事务外读取刚写入的数据可能因复制延迟读不到，这种情况应在事务中查询
+ * @author huangcanjie
+ */
+public class RoutingDataSource implements DataSource, RoutingDataSourceMXBean, AutoCloseable {
+
+    final org.slf4j.Logger logger = LoggerFactory.getLogger(getClass());
+
+    final DataSource primary;
+    final Replica[] replicas;
+    final LoadBalance loadBalance;
+    // 健康从库的平滑加权轮询顺序，元素为从库下标，从库状态变化时重新生成
+    volatile int[] schedule;
+    final AtomicLong counter = new AtomicLong();
+
+    final LongAdder replicaReads = new LongAdder();
+    final LongAdder primaryReads = new LongAdder();
+    final LongAdder ejections = new LongAdder();
+
+    String lagQuery;
+    long maxLagSeconds;
+    long checkIntervalMillis = 5000;
+    int validationTimeoutSeconds = 3;
+
+    ScheduledExecutorService checker;
+
+    final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName;
+
+    /**
+     * @param weights  每个从库的权重，为 null 时权重都为 1
+     */
+    public RoutingDataSource(DataSource primary, List<DataSource> replicas, int[] weights, LoadBalance loadBalance) {
+        if (weights != null && weights.length != replicas.size()) {
+            throw new IllegalArgumentException("weights must match replicas.");
+        }
+        this.primary = primary;
+        this.loadBalance = loadBalance;
+        this.replicas = new Replica[replicas.size()];
+        for (int i = 0; i < this.replicas.length; i++) {
+            int weight = weights == null ? 1 : weights[i];
+            if (weight <= 0) {
+                throw new IllegalArgumentException("weight must be positive.");
+            }
+            this.replicas[i] = new Replica("replica-" + i, replicas.get(i), weight);
+        }
+        updateSchedule();
+    }
+
+    /**
+     * 返回包装链中的 RoutingDataSource，没有时返回 null
+     */
+    public static RoutingDataSource unwrap(DataSource dataSource) {
+        try {
+            return dataSource != null && dataSource.isWrapperFor(RoutingDataSource.class) ? dataSource.unwrap(RoutingDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 返回主库复制延迟的查询，结果为一行一列的秒数，null 表示复制已停止
+     */
+    public void setLagQuery(String lagQuery) {
+        this.lagQuery = lagQuery == null || lagQuery.isEmpty() ? null : lagQuery;
+    }
+
+    /**
+     * 允许的最大复制延迟（秒），小于等于 0 表示不限制
+     */
+    public void setMaxLagSeconds(long maxLagSeconds) {
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    public void setCheckIntervalMillis(long checkIntervalMillis) {
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    /**
+     * 开始定期检查从库，并注册到 JMX
+     */
+    public synchronized void start(String name) {
+        if (checker != null) {
+            return;
+        }
+        objectName = MBeans.register(mBeanServer, "RoutingDataSource", name, this);
+        checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "autumn-replica-checker-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::checkReplicas, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * 返回从库的连接，获取失败的从库被移出并尝试下一个，都不可用时返回主库连接。
+     * 暂时性的错误（如连接池等待超时）不移出从库，直接返回主库连接
+     */
+    public Connection getReadConnection() throws SQLException {
+        for (int attempt = 0; attempt < replicas.length; attempt++) {
+            Replica replica = choose();
+            if (replica == null) {
+                break;
+            }
+            Connection connection;
+            try {
+                connection = replica.dataSource.getConnection();
+            } catch (SQLTransientException e) {
+                // 连接池等待超时等暂时性错误说明从库繁忙而不是不可用，不移出，直接使用主库
+                logger.debug("Replica {} busy, read from primary: {}", replica.name, e.toString());
+                break;
+            } catch (SQLException e) {
+                eject(replica, e.toString());
+                continue;
+            }
+            replica.outstanding.incrementAndGet();
+            replica.acquired.increment();
+            replicaReads.increment();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    new ReplicaConnectionHandler(connection, replica));
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    Replica choose() {
+        int n = replicas.length;
+        if (n == 0) {
+            return null;
+        }
+        long start = counter.getAndIncrement();
+        if (loadBalance == LoadBalance.WEIGHTED_ROUND_ROBIN) {
+            int[] schedule = this.schedule;
+            for (int i = 0; i < schedule.length; i++) {
+                Replica replica = replicas[schedule[(int) ((start + i) % schedule.length)]];
+                if (replica.healthy) {
+                    return replica;
+                }
+            }
+            return null;
+        }
+        // 从轮转的起点开始比较，借出连接数相同时均匀分配
+        Replica best = null;
+        long bestOutstanding = 0;
+        for (int i = 0; i < n; i++) {
+            Replica replica = replicas[(int) ((start + i) % n)];
+            if (!replica.healthy) {
+                continue;
+            }
+            long outstanding = replica.outstanding.get() + 1;
+            // outstanding / weight < bestOutstanding / best.weight
+            if (best == null || outstanding * best.weight < bestOutstanding * replica.weight) {
+                best = replica;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 按 nginx 的平滑加权轮询，为健康的从库生成一轮（总权重个）的顺序，权重大的从库不会连续出现
+     */
+    synchronized void updateSchedule() {
+        int total = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                total += replica.weight;
+            }
+        }
+        int[] schedule = new int[total];
+        int[] current = new int[replicas.length];
+        for (int step = 0; step < total; step++) {
+            int selected = -1;
+            for (int i = 0; i < replicas.length; i++) {
+                if (!replicas[i].healthy) {
+                    continue;
+                }
+                current[i] += replicas[i].weight;
+                if (selected < 0 || current[i] > current[selected]) {
+                    selected = i;
+                }
+            }
+            current[selected] -= total;
+            schedule[step] = selected;
+        }
+        this.schedule = schedule;
+    }
+
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            String failure = check(replica);
+            if (failure != null) {
+                eject(replica, failure);
+            } else if (!replica.healthy) {
+                replica.healthy = true;
+                updateSchedule();
+                logger.info("replica {} is back, lag {}s", replica.name, replica.lagSeconds);
+            }
+        }
+    }
+
+    /**
+     * @return  不可用的原因，可用时返回 null
+     */
+    String check(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection()) {
+            if (lagQuery == null) {
+                return connection.isValid(validationTimeoutSeconds) ? null : "connection is not valid";
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(validationTimeoutSeconds);
+                try (ResultSet rs = statement.executeQuery(lagQuery)) {
+                    long lag = rs.next() ? rs.getLong(1) : -1;
+                    if (lag == 0 && rs.wasNull()) {
+                        lag = -1;
+                    }
+                    replica.lagSeconds = lag;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            return e.toString();
+        }
+        if (replica.lagSeconds < 0) {
+            return "replication is not running";
+        }
+        if (maxLagSeconds > 0 && replica.lagSeconds > maxLagSeconds) {
+            return String.format("lag %ds exceeds %ds", replica.lagSeconds, maxLagSeconds);
+        }
+        return null;
+    }
+
+    void eject(Replica replica, String reason) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            updateSchedule();
+            ejections.increment();
+            logger.warn("eject replica {}: {}", replica.name, reason);
+        }
+    }
+
+    @Override
+    public String getLoadBalance() {
+        return loadBalance.name();
+    }
+
+    @Override
+    public int getReplicaCount() {
+        return replicas.length;
+    }
+
+    @Override
+    public int getHealthyReplicaCount() {
+        int count = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String[] getReplicaStates() {
+        String[] states = new String[replicas.length];
+        for (int i = 0; i < replicas.length; i++) {
+            states[i] = replicas[i].toString();
+        }
+        return states;
+    }
+
+    @Override
+    public long getReplicaReadCount() {
+        return replicaReads.sum();
+    }
+
+    @Override
+    public long getPrimaryReadCount() {
+        return primaryReads.sum();
+    }
+
+    @Override
+    public long getEjectionCount() {
+        return ejections.sum();
+    }
+
+    /**
+     * 停止检查，关闭主库和从库（如果可以关闭）
+     */
+    @Override
+    public synchronized void close() throws SQLException {
+        if (checker != null) {
+            checker.shutdownNow();
+            checker = null;
+        }
+        if (objectName != null) {
+            MBeans.unregister(mBeanServer, objectName);
+            objectName = null;
+        }
+        SQLException error = null;
+        for (Replica replica : replicas) {
+            error = closeDataSource(replica.dataSource, error);
+        }
+        error = closeDataSource(primary, error);
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * 关闭可以关闭的 DataSource，出错时继续关闭其他的，返回第一个错误
+     */
+    static SQLException closeDataSource(DataSource dataSource, SQLException error) {
+        if (!(dataSource instanceof AutoCloseable)) {
+            return error;
+        }
+        try {
+            ((AutoCloseable) dataSource).close();
+        } catch (Exception e) {
+            SQLException ex = e instanceof SQLException ? (SQLException) e : new SQLException("Could not close " + dataSource, e);
+            if (error == null) {
+                return ex;
+            }
+            error.addSuppressed(ex);
+        }
+        return error;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    /**
+     * 从库连接的代理，关闭时减少从库借出的连接数
+     */
+    static final class ReplicaConnectionHandler implements InvocationHandler {
+        final Connection connection;
+        final Replica replica;
+        boolean closed;
+
+        ReplicaConnectionHandler(Connection connection, Replica replica) {
+            this.connection = connection;
+            this.replica = replica;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        replica.outstanding.decrementAndGet();
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return replica.name + " " + connection;
+                default:
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.autumn.jdbc.routing;
+
+/**
+ * 以 JMX 导出的读写分离状态，ObjectName 为 com.autumn:type=RoutingDataSource,name="名称"
+ * @author huangcanjie
+ */
+public interface RoutingDataSourceMXBean {
+
+    String getLoadBalance();
+
+    int getReplicaCount();
+
+    int getHealthyReplicaCount();
+
+    /**
+     * 每个从库的状态：名称、是否健康、延迟秒数、借出的连接数、累计借出次数
+     */
+    String[] getReplicaStates();
+
+    long getReplicaReadCount();
+
+    long getPrimaryReadCount();
+
+    long getEjectionCount();
+}
@@ -1,70 +1,181 @@
 package com.autumn.jdbc.tx;
 
+import com.autumn.aop.MethodInterceptor;
+import com.autumn.aop.MethodInvocation;
 import com.autumn.exception.TransactionException;
+import com.autumn.jdbc.routing.RoutingDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 
 /**
+ * 按 @Transactional 的属性管理事务：传播行为（REQUIRED、REQUIRES_NEW、NESTED、SUPPORTS、NOT_SUPPORTED）、
+ * 隔离级别、超时和只读。事务属性由 TransactionAttributeSource 按方法解析一次并缓存。
+ * 当前线程的事务保存在 ThreadLocal 中，挂起事务时移除，结束后恢复
  * @author huangcanjie
  */
-public class DataSourceTransactionManager implements PlatformTransactionManager, InvocationHandler {
+public class DataSourceTransactionManager implements PlatformTransactionManager, MethodInterceptor {
 
     static final ThreadLocal<TransactionStatus> transactionStatus = new ThreadLocal<>();
 
     final Logger logger = LoggerFactory.getLogger(getClass());
 
     final DataSource dataSource;
+    // 读写分离时，只读事务使用从库连接
+    final RoutingDataSource routingDataSource;
+
+    final TransactionAttributeSource attributeSource = new TransactionAttributeSource();
 
     public DataSourceTransactionManager(DataSource dataSource) {
         this.dataSource = dataSource;
+        this.routingDataSource = RoutingDataSource.unwrap(dataSource);
     }
 
     @Override
-    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        // 获取当前的数据库连接，如果存在，直接执行方法
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        TransactionDefinition definition = attributeSource.getDefinition(invocation.getMethod(), invocation.getThis().getClass());
+        if (definition == null) {
+            // 没有事务属性的方法（如类上 @Transactional 的切点不匹配的方法）直接执行，不获取连接
+            return invocation.proceed();
+        }
         TransactionStatus status = transactionStatus.get();
-        if (status == null) {
-            // 当前不存在数据库事务连接，获取新的连接
-            try (Connection connection = dataSource.getConnection()) {
-                boolean autoCommit = connection.getAutoCommit();
-                // 关闭自动提交
-                if (autoCommit) {
-                    connection.setAutoCommit(false);
+        switch (definition.getPropagation()) {
+            case REQUIRES_NEW:
+                return invokeSuspended(invocation, definition, true);
+            case NESTED:
+                return status == null ? invokeInNewTransaction(invocation, definition) : invokeNested(invocation, status);
+            case SUPPORTS:
+                return invocation.proceed();
+            case NOT_SUPPORTED:
+                return invokeSuspended(invocation, definition, false);
+            default:
+                // REQUIRED：存在事务时直接加入
+                return status == null ? invokeInNewTransaction(invocation, definition) : invocation.proceed();
+        }
+    }
+
+    /**
+     * 挂起当前事务后执行，newTransaction 为 true 时开启新事务，否则不在事务中执行
+     */
+    Object invokeSuspended(MethodInvocation invocation, TransactionDefinition definition, boolean newTransaction) throws Throwable {
+        TransactionStatus suspended = transactionStatus.get();
+        transactionStatus.remove();
+        try {
+            return newTransaction ? invokeInNewTransaction(invocation, definition) : invocation.proceed();
+        } finally {
+            if (suspended != null) {
+                transactionStatus.set(suspended);
+            }
+        }
+    }
+
+    /**
+     * 在当前事务中设置保存点，异常时只回滚到保存点，异常继续抛出由外层决定是否回滚整个事务
+     */
+    Object invokeNested(MethodInvocation invocation, TransactionStatus status) throws Throwable {
+        Connection connection = status.connection;
+        Savepoint savepoint = connection.setSavepoint();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            logger.warn("will rollback to savepoint for caused exception: {}", e.getClass().getName());
+            try {
+                connection.rollback(savepoint);
+            } catch (SQLException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+        connection.releaseSavepoint(savepoint);
+        return result;
+    }
+
+    Object invokeInNewTransaction(MethodInvocation invocation, TransactionDefinition definition) throws Throwable {
+        // 获取新的连接，只读事务优先使用从库
+        try (Connection connection = definition.isReadOnly() && routingDataSource != null ? routingDataSource.getReadConnection() : dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            // 关闭自动提交
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            // 隔离级别和只读需要在事务的第一条语句之前设置，结束后恢复
+            int previousIsolation = -1;
+            if (definition.getIsolation() != Isolation.DEFAULT) {
+                int isolation = connection.getTransactionIsolation();
+                if (isolation != definition.getIsolation().getLevel()) {
+                    connection.setTransactionIsolation(definition.getIsolation().getLevel());
+                    previousIsolation = isolation;
                 }
+            }
+            boolean resetReadOnly = definition.isReadOnly() && !connection.isReadOnly();
+            if (resetReadOnly) {
+                connection.setReadOnly(true);
+            }
+            Throwable failure = null;
+            try {
+                // 保存数据库连接，方便下一个方法加入事务
+                transactionStatus.set(new TransactionStatus(connection, definition));
+                // 执行方法，等待调用完成（可能会调用其它事务方法，按传播行为加入或者挂起当前事务)，提交事务
+                Object result = invocation.proceed();
+                connection.commit();
+                return result;
+            } catch (Throwable e) {
+                logger.warn("will rollback transaction for caused exception: {}", e.getClass().getName());
+                TransactionException exception = new TransactionException(e);
+                // 发生异常，回滚事务
                 try {
-                    // 保存数据库连接，方便下一个方法加入事务
-                    transactionStatus.set(new TransactionStatus(connection));
-                    // 执行方法，等待调用完成（可能会调用其它事务方法，其他事务方法会直接执行 else 分支)，提交事务
-                    Object result = method.invoke(proxy, args);
-                    connection.commit();
-                    return result;
-                } catch (InvocationTargetException e) {
-                    logger.warn("will rollback transaction for caused exception: {}", e.getCause() == null ? "null" : e.getCause().getClass().getName());
-                    TransactionException exception = new TransactionException(e.getCause());
-                    // 发生异常，回滚事务
-                    try {
-                        connection.rollback();
-                    } catch (SQLException ex) {
-                        exception.addSuppressed(ex);
-                    }
-                    throw exception;
-                } finally {
-                    // 移除当前事务连接，并设置自动提交
-                    transactionStatus.remove();
-                    if (autoCommit) {
-                        connection.setAutoCommit(true);
-                    }
+                    connection.rollback();
+                } catch (SQLException ex) {
+                    exception.addSuppressed(ex);
                 }
+                failure = exception;
+                throw exception;
+            } finally {
+                // 移除当前事务连接，恢复连接的设置
+                transactionStatus.remove();
+                restoreConnection(connection, resetReadOnly, previousIsolation, autoCommit, failure);
             }
+        }
+    }
+
+    /**
+     * 逐项恢复连接的设置，一项失败不影响其他项。恢复失败不改变事务的结果：
+     * 事务失败时作为 suppressed 加入原来的异常，事务已提交时只记录日志
+     */
+    void restoreConnection(Connection connection, boolean resetReadOnly, int previousIsolation, boolean autoCommit, Throwable failure) {
+        if (resetReadOnly) {
+            try {
+                connection.setReadOnly(false);
+            } catch (SQLException e) {
+                restoreFailed(e, failure);
+            }
+        }
+        if (previousIsolation != -1) {
+            try {
+                connection.setTransactionIsolation(previousIsolation);
+            } catch (SQLException e) {
+                restoreFailed(e, failure);
+            }
+        }
+        if (autoCommit) {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                restoreFailed(e, failure);
+            }
+        }
+    }
+
+    void restoreFailed(SQLException e, Throwable failure) {
+        if (failure != null) {
+            failure.addSuppressed(e);
         } else {
-            return method.invoke(proxy, args);
+            logger.warn("could not restore connection settings after commit: {}", e.toString(), e);
         }
     }
 }
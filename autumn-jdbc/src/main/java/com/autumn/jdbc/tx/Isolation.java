@@ -0,0 +1,29 @@
+package com.autumn.jdbc.tx;
+
+import java.sql.Connection;
+
+/**
+ * 事务隔离级别，DEFAULT 表示使用连接的默认值
+ * @author huangcanjie
+ */
+public enum Isolation {
+
+    DEFAULT(-1),
+    READ_UNCOMMITTED(Connection.TRANSACTION_READ_UNCOMMITTED),
+    READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+    REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+    SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+    final int level;
+
+    Isolation(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Connection 中对应的常量
+     */
+    public int getLevel() {
+        return level;
+    }
+}
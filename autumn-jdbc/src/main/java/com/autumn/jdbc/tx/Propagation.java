@@ -0,0 +1,33 @@
+package com.autumn.jdbc.tx;
+
+/**
+ * 事务传播行为
+ * @author huangcanjie
+ */
+public enum Propagation {
+
+    /**
+     * 加入当前事务，没有事务时开启新事务
+     */
+    REQUIRED,
+
+    /**
+     * 挂起当前事务，使用新连接开启新事务，结束后恢复
+     */
+    REQUIRES_NEW,
+
+    /**
+     * 在当前事务中设置保存点，异常时回滚到保存点；没有事务时开启新事务
+     */
+    NESTED,
+
+    /**
+     * 有事务时加入，没有事务时不开启事务
+     */
+    SUPPORTS,
+
+    /**
+     * 挂起当前事务，不在事务中执行，结束后恢复
+     */
+    NOT_SUPPORTED
+}
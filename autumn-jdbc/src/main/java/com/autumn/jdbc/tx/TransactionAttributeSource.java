@@ -0,0 +1,66 @@
+package com.autumn.jdbc.tx;
+
+import com.autumn.annotation.Transactional;
+import com.autumn.aop.Pointcut;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 解析并缓存方法的事务属性，每个目标类的每个方法只解析一次。
+ * 方法上的 @Transactional 优先；没有时使用类上的 @Transactional 作为默认属性，但只作用于匹配其切点的方法，
+ * 并且不包括重写的 toString、equals、hashCode。没有事务属性的方法不开启事务，直接执行
+ * @author huangcanjie
+ */
+public class TransactionAttributeSource {
+
+    // 缓存中表示方法不需要事务
+    static final TransactionDefinition NO_TRANSACTION = new TransactionDefinition(Propagation.SUPPORTS, Isolation.DEFAULT, -1, false);
+
+    // 目标类 -> (调用的方法 -> 事务属性)
+    final ClassValue<ConcurrentMap<Method, TransactionDefinition>> definitions = new ClassValue<ConcurrentMap<Method, TransactionDefinition>>() {
+        @Override
+        protected ConcurrentMap<Method, TransactionDefinition> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    /**
+     * @return  方法的事务属性，不需要事务时返回 null
+     */
+    public TransactionDefinition getDefinition(Method method, Class<?> targetClass) {
+        ConcurrentMap<Method, TransactionDefinition> cache = definitions.get(targetClass);
+        TransactionDefinition definition = cache.get(method);
+        if (definition == null) {
+            definition = resolve(method, targetClass);
+            cache.putIfAbsent(method, definition);
+        }
+        return definition == NO_TRANSACTION ? null : definition;
+    }
+
+    TransactionDefinition resolve(Method method, Class<?> targetClass) {
+        Method targetMethod;
+        try {
+            targetMethod = targetClass.getMethod(method.getName(), method.getParameterTypes());
+        } catch (NoSuchMethodException e) {
+            targetMethod = method;
+        }
+        Transactional transactional = targetMethod.getAnnotation(Transactional.class);
+        if (transactional != null) {
+            return TransactionDefinition.of(transactional);
+        }
+        Transactional typeTransactional = targetClass.getAnnotation(Transactional.class);
+        if (typeTransactional == null || isObjectMethod(targetMethod) || !Pointcut.parse(typeTransactional.pointcut()).matches(targetMethod)) {
+            return NO_TRANSACTION;
+        }
+        return TransactionDefinition.of(typeTransactional);
+    }
+
+    static boolean isObjectMethod(Method method) {
+        String name = method.getName();
+        int count = method.getParameterCount();
+        return (count == 0 && (name.equals("toString") || name.equals("hashCode")))
+                || (count == 1 && name.equals("equals") && method.getParameterTypes()[0] == Object.class);
+    }
+}
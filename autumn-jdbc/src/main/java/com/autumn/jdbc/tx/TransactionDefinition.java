@@ -0,0 +1,44 @@
+package com.autumn.jdbc.tx;
+
+import com.autumn.annotation.Transactional;
+
+/**
+ * 事务属性：传播行为、隔离级别、超时（秒，小于等于 0 表示不超时）和是否只读
+ * @author huangcanjie
+ */
+public class TransactionDefinition {
+
+    public static final TransactionDefinition DEFAULT = new TransactionDefinition(Propagation.REQUIRED, Isolation.DEFAULT, -1, false);
+
+    final Propagation propagation;
+    final Isolation isolation;
+    final int timeout;
+    final boolean readOnly;
+
+    public TransactionDefinition(Propagation propagation, Isolation isolation, int timeout, boolean readOnly) {
+        this.propagation = propagation;
+        this.isolation = isolation;
+        this.timeout = timeout;
+        this.readOnly = readOnly;
+    }
+
+    public static TransactionDefinition of(Transactional transactional) {
+        return new TransactionDefinition(transactional.propagation(), transactional.isolation(), transactional.timeout(), transactional.readOnly());
+    }
+
+    public Propagation getPropagation() {
+        return propagation;
+    }
+
+    public Isolation getIsolation() {
+        return isolation;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+}
@@ -3,14 +3,27 @@ package com.autumn.jdbc.tx;
 import java.sql.Connection;
 
 /**
- * 记录当前事务的状态，保存当前的数据库连接，后续可以在这里面存储事务传播机制
+ * 记录当前事务的状态：数据库连接、事务属性和超时的截止时间
  * @author huangcanjie
  */
 public class TransactionStatus {
 
     final Connection connection;
+    final TransactionDefinition definition;
+    // System.nanoTime() 的截止时间，0 表示不超时
+    final long deadline;
 
     public TransactionStatus(Connection connection) {
+        this(connection, TransactionDefinition.DEFAULT);
+    }
+
+    public TransactionStatus(Connection connection, TransactionDefinition definition) {
         this.connection = connection;
+        this.definition = definition;
+        this.deadline = definition.getTimeout() > 0 ? System.nanoTime() + definition.getTimeout() * 1_000_000_000L : 0;
+    }
+
+    public boolean isReadOnly() {
+        return definition.isReadOnly();
     }
 }
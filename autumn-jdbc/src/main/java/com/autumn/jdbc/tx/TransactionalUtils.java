@@ -1,6 +1,11 @@
 package com.autumn.jdbc.tx;
 
+import com.autumn.exception.TransactionException;
+
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author huangcanjie
@@ -11,4 +16,20 @@ public class TransactionalUtils {
         TransactionStatus status = DataSourceTransactionManager.transactionStatus.get();
         return status == null ? null : status.connection;
     }
+
+    /**
+     * 当前事务设置了超时时，以剩余时间作为语句的查询超时，已经超时则抛出 TransactionException
+     */
+    public static void applyTimeout(Statement statement) throws SQLException {
+        TransactionStatus status = DataSourceTransactionManager.transactionStatus.get();
+        if (status == null || status.deadline == 0) {
+            return;
+        }
+        long remaining = status.deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new TransactionException(String.format("Transaction timed out after %d seconds.", status.definition.getTimeout()));
+        }
+        // 向上取整，不足一秒按一秒
+        statement.setQueryTimeout((int) ((remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+    }
 }
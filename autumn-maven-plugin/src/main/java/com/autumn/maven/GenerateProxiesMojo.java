@@ -0,0 +1,201 @@
+package com.autumn.maven;
+
+import com.autumn.aop.AnnotationProxyBeanPostProcessor;
+import com.autumn.aop.ProxyClassGenerator;
+import net.bytebuddy.dynamic.DynamicType;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 构建时生成代理类：扫描编译后的类，为标注了 @Aspect、@Around、@Timed、@Bulkhead、@RateLimited、@Transactional（类或方法上）的类生成代理类和 Invoker，
+ * 写入 target/classes，并登记在 META-INF/autumn/proxies 中，运行时 ProxyResolver 优先使用这些类。
+ * 同时输出生成的代理类报告
+ * @author huangcanjie
+ */
+@Mojo(name = "generate-proxies", defaultPhase = LifecyclePhase.PROCESS_CLASSES, requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class GenerateProxiesMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    File classesDirectory;
+
+    @Parameter(defaultValue = "${project.compileClasspathElements}", readonly = true, required = true)
+    List<String> classpathElements;
+
+    /**
+     * 需要生成代理的注解，不在 classpath 中的注解会被忽略
+     */
+    @Parameter
+    List<String> annotations;
+
+    @Parameter(defaultValue = "${project.build.directory}/autumn-proxies.txt")
+    File reportFile;
+
+    @Parameter(property = "autumn.proxies.skip", defaultValue = "false")
+    boolean skip;
+
+    static final String[] DEFAULT_ANNOTATIONS = {
+            "com.autumn.annotation.Aspect",
+            "com.autumn.annotation.Around",
+            "com.autumn.annotation.Timed",
+            "com.autumn.annotation.Bulkhead",
+            "com.autumn.annotation.RateLimited",
+            "com.autumn.annotation.Transactional"
+    };
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Skip generating proxies.");
+            return;
+        }
+        if (!classesDirectory.isDirectory()) {
+            getLog().info("No classes to generate proxies for.");
+            return;
+        }
+        // 父类加载器是插件的类加载器，生成的代码和工程使用同一份 autumn-aop
+        try (URLClassLoader classLoader = new URLClassLoader(toUrls(), getClass().getClassLoader())) {
+            List<Class<? extends Annotation>> annotationClasses = loadAnnotations(classLoader);
+            if (annotationClasses.isEmpty()) {
+                getLog().info("No proxy annotation found in classpath.");
+                return;
+            }
+            ProxyClassGenerator generator = new ProxyClassGenerator();
+            List<String> registry = new ArrayList<>();
+            List<String> report = new ArrayList<>();
+            long totalBytes = 0;
+            for (String className : findClassNames()) {
+                Class<?> targetClass;
+                try {
+                    targetClass = Class.forName(className, false, classLoader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    getLog().debug("Skip class " + className + ": " + e);
+                    continue;
+                }
+                if (!isProxyable(targetClass)) {
+                    continue;
+                }
+                Set<Method> methods = new HashSet<>();
+                for (Class<? extends Annotation> annotationClass : annotationClasses) {
+                    AnnotationProxyBeanPostProcessor.matchMethods(targetClass, annotationClass).values().forEach(methods::addAll);
+                }
+                if (methods.isEmpty()) {
+                    continue;
+                }
+                List<Method> sorted = ProxyClassGenerator.sortMethods(methods);
+                String proxyClassName = ProxyClassGenerator.pregeneratedProxyName(targetClass);
+                long bytes = save(generator.makeProxyClass(targetClass, sorted, proxyClassName));
+                List<String> signatures = new ArrayList<>(sorted.size());
+                for (int i = 0; i < sorted.size(); i++) {
+                    bytes += save(generator.makeInvoker(sorted.get(i), ProxyClassGenerator.pregeneratedInvokerName(proxyClassName, i)));
+                    signatures.add(ProxyClassGenerator.signature(sorted.get(i)));
+                }
+                totalBytes += bytes;
+                registry.add(className + "\t" + proxyClassName + "\t" + String.join(";", signatures));
+                report.add(String.format("%s -> %s, %d methods, %d classes, %d bytes", className, proxyClassName, sorted.size(), sorted.size() + 1, bytes));
+                signatures.forEach(s -> report.add("    " + s));
+            }
+            writeRegistry(registry);
+            writeReport(report, registry.size(), totalBytes);
+            getLog().info(String.format("Generated %d proxies (%d bytes), report: %s", registry.size(), totalBytes, reportFile));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot generate proxies.", e);
+        }
+    }
+
+    URL[] toUrls() throws MalformedURLException {
+        List<URL> urls = new ArrayList<>();
+        urls.add(classesDirectory.toURI().toURL());
+        for (String element : classpathElements) {
+            urls.add(new File(element).toURI().toURL());
+        }
+        return urls.toArray(new URL[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Class<? extends Annotation>> loadAnnotations(ClassLoader classLoader) {
+        List<String> names = annotations == null || annotations.isEmpty() ? Arrays.asList(DEFAULT_ANNOTATIONS) : annotations;
+        List<Class<? extends Annotation>> classes = new ArrayList<>();
+        for (String name : names) {
+            try {
+                Class<?> clazz = Class.forName(name, false, classLoader);
+                if (clazz.isAnnotation()) {
+                    classes.add((Class<? extends Annotation>) clazz);
+                }
+            } catch (ClassNotFoundException e) {
+                getLog().debug("Annotation " + name + " not found.");
+            }
+        }
+        return classes;
+    }
+
+    List<String> findClassNames() throws IOException {
+        Path root = classesDirectory.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(p -> p.toString().endsWith(".class"))
+                    .map(p -> root.relativize(p).toString())
+                    .map(name -> name.substring(0, name.length() - 6).replace(File.separatorChar, '.'))
+                    // 跳过上次生成的代理类
+                    .filter(name -> !name.contains(ProxyClassGenerator.PREGENERATED_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    boolean isProxyable(Class<?> clazz) {
+        int modifiers = clazz.getModifiers();
+        return !clazz.isInterface() && !clazz.isAnnotation() && !clazz.isEnum() && Modifier.isPublic(modifiers)
+                && !Modifier.isAbstract(modifiers) && !Modifier.isFinal(modifiers)
+                && (clazz.getEnclosingClass() == null || Modifier.isStatic(modifiers));
+    }
+
+    long save(DynamicType.Unloaded<?> unloaded) throws IOException {
+        unloaded.saveIn(classesDirectory);
+        long bytes = unloaded.getBytes().length;
+        for (byte[] auxiliary : unloaded.getAuxiliaryTypes().values()) {
+            bytes += auxiliary.length;
+        }
+        return bytes;
+    }
+
+    void writeRegistry(List<String> registry) throws IOException {
+        Path path = classesDirectory.toPath().resolve(ProxyClassGenerator.REGISTRY_LOCATION);
+        if (registry.isEmpty()) {
+            Files.deleteIfExists(path);
+            return;
+        }
+        Files.createDirectories(path.getParent());
+        Files.write(path, registry, StandardCharsets.UTF_8);
+    }
+
+    void writeReport(List<String> report, int proxyCount, long totalBytes) throws IOException {
+        Files.createDirectories(reportFile.toPath().getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8))) {
+            writer.printf("Autumn pregenerated proxies: %d, %d bytes%n", proxyCount, totalBytes);
+            report.forEach(writer::println);
+        }
+    }
+}